@@ -2,6 +2,7 @@ package com.workshop.aeogeo.controller;
 
 import com.workshop.aeogeo.model.ProductModel;
 import com.workshop.aeogeo.repository.ProductRepository;
+import com.workshop.aeogeo.service.SemanticSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,6 +24,7 @@ import java.util.Map;
  * 3. Include required fields: name, description, image, brand, offers
  * 4. Include recommended fields: aggregateRating, sku, category
  * 5. Handle null values gracefully
+ * 6. Optional: isSimilarTo, from the precomputed similar-products graph
  *
  * Validation: Test with Google Rich Results Test
  */
@@ -33,6 +35,9 @@ public class ProductSchemaController {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private SemanticSearchService searchService;
+
     /**
      * Get Product Schema (JSON-LD) for a specific product.
      *
@@ -78,7 +83,11 @@ public class ProductSchemaController {
         // Step 7: Add category (if available)
         // Check if product.getCategory() is not null
 
-        // Step 8: Return the schema
+        // Step 8 (optional): Add isSimilarTo
+        // Hint: searchService.findSimilar(id, 3) returns precomputed neighbours (empty until computed)
+        // Map each result to a Map with @type: "Product", name, sku and url
+
+        // Step 9: Return the schema
         // Hint: return ResponseEntity.ok(schema);
 
         return ResponseEntity.notFound().build(); // Replace this with your implementation
@@ -0,0 +1,134 @@
+package com.workshop.aeogeo.controller;
+
+import com.workshop.aeogeo.dto.AdmissionStats;
+import com.workshop.aeogeo.dto.EmbeddingCacheStats;
+import com.workshop.aeogeo.dto.Float16IndexStats;
+import com.workshop.aeogeo.dto.PqIndexStats;
+import com.workshop.aeogeo.dto.SearchCacheStats;
+import com.workshop.aeogeo.dto.StorageConversion;
+import com.workshop.aeogeo.service.SearchAdmissionLimiter;
+import com.workshop.aeogeo.service.SearchResultCache;
+import com.workshop.aeogeo.service.embedding.EmbeddingCache;
+import com.workshop.aeogeo.service.search.Float16SearchBackend;
+import com.workshop.aeogeo.service.search.PgVectorIndexManager;
+import com.workshop.aeogeo.service.search.PqSearchBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Search Admin Controller
+ *
+ * Operational endpoints for the vector search backends.
+ *
+ * Endpoints:
+ * - GET /api/admin/search/pq
+ * - GET /api/admin/search/float16
+ * - GET /api/admin/search/embedding-cache
+ * - GET /api/admin/search/result-cache
+ * - GET /api/admin/search/admission
+ * - POST /api/admin/search/pgvector/storage
+ */
+@RestController
+@RequestMapping("/api/admin/search")
+public class SearchAdminController {
+
+    @Autowired(required = false)
+    private PqSearchBackend pqSearchBackend;
+
+    @Autowired(required = false)
+    private Float16SearchBackend float16SearchBackend;
+
+    @Autowired
+    private PgVectorIndexManager pgVectorIndexManager;
+
+    @Autowired
+    private EmbeddingCache embeddingCache;
+
+    @Autowired
+    private SearchResultCache resultCache;
+
+    @Autowired
+    private SearchAdmissionLimiter admissionLimiter;
+
+    /**
+     * Product-quantization index statistics: bytes per vector and measured recall@k.
+     *
+     * @param k Neighbours per evaluation query
+     * @param queries Number of evaluation queries
+     * @return PQ statistics, or 404 if the PQ backend is not active
+     */
+    @GetMapping("/pq")
+    public ResponseEntity<PqIndexStats> getPqStats(@RequestParam(defaultValue = "10") int k,
+                                                   @RequestParam(defaultValue = "100") int queries) {
+        if (pqSearchBackend == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (k <= 0 || queries <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pqSearchBackend.getStats(k, queries));
+    }
+
+    /**
+     * Float16 index statistics: bytes per vector and recall@k against the float32 embeddings.
+     *
+     * @param k Neighbours per evaluation query
+     * @param queries Number of evaluation queries
+     * @return Float16 statistics, or 404 if the float16 backend is not active
+     */
+    @GetMapping("/float16")
+    public ResponseEntity<Float16IndexStats> getFloat16Stats(@RequestParam(defaultValue = "10") int k,
+                                                             @RequestParam(defaultValue = "100") int queries) {
+        if (float16SearchBackend == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (k <= 0 || queries <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(float16SearchBackend.getStats(k, queries));
+    }
+
+    /**
+     * Convert the products.embedding column to another storage type and rebuild its index.
+     *
+     * A maintenance step: the table is rewritten under an exclusive lock,
+     * and converting to halfvec permanently rounds the stored embeddings
+     * to float16 (requires pgvector 0.7+).
+     *
+     * @param type "vector" (float32) or "halfvec" (float16)
+     * @return Conversion result, or 400 for an unsupported type
+     */
+    @PostMapping("/pgvector/storage")
+    public ResponseEntity<StorageConversion> convertPgVectorStorage(@RequestParam String type) {
+        try {
+            return ResponseEntity.ok(pgVectorIndexManager.convertStorage(type));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Query-embedding cache statistics: hits, misses, evictions and size.
+     */
+    @GetMapping("/embedding-cache")
+    public ResponseEntity<EmbeddingCacheStats> getEmbeddingCacheStats() {
+        return ResponseEntity.ok(embeddingCache.getStats());
+    }
+
+    /**
+     * Semantic result cache statistics: hits, misses, stale misses and size.
+     */
+    @GetMapping("/result-cache")
+    public ResponseEntity<SearchCacheStats> getResultCacheStats() {
+        return ResponseEntity.ok(resultCache.getStats());
+    }
+
+    /**
+     * Admission control statistics: current concurrency limit, latency and shed requests.
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<AdmissionStats> getAdmissionStats() {
+        return ResponseEntity.ok(admissionLimiter.getStats());
+    }
+}
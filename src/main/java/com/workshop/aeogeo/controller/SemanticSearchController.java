@@ -1,52 +1,267 @@
 package com.workshop.aeogeo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workshop.aeogeo.dto.BatchSemanticSearchRequest;
+import com.workshop.aeogeo.dto.BatchSemanticSearchResponse;
+import com.workshop.aeogeo.dto.ProductField;
+import com.workshop.aeogeo.dto.SearchFilter;
+import com.workshop.aeogeo.dto.SearchMode;
+import com.workshop.aeogeo.dto.SearchStreamEvent;
 import com.workshop.aeogeo.dto.SemanticSearchRequest;
 import com.workshop.aeogeo.dto.SemanticSearchResponse;
+import com.workshop.aeogeo.service.SearchAdmissionLimiter;
 import com.workshop.aeogeo.service.SemanticSearchService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 /**
  * Semantic Search Controller - Exercise 3: RAG Pipeline
  *
- * TODO: Implement semantic search endpoint using vector embeddings
+ * Endpoints:
+ * - POST /api/search/semantic
+ * - POST /api/search/semantic/batch (many queries, one embedding call and one backend pass)
+ * - POST /api/search/semantic/stream
+ * - POST /api/search/semantic/batch/stream
+ *
+ * 1. Accepts user query text, optional parameters and attribute filters
+ *    (categories, manufacturers, inStock, minPrice/maxPrice)
+ * 2. mode=hybrid fuses vector and BM25 keyword rankings, mode=multi-vector
+ *    ranks by per-chunk product embeddings (see SearchMode)
+ * 3. Calls SemanticSearchService to perform vector search
+ * 4. Returns ranked results with similarity scores
+ * 5. Tracks and returns execution time
+ *
+ * limit defaults to 5 and may not exceed search.max-limit (default 100);
+ * larger requests are rejected with 400.
  *
- * Endpoint: POST /api/search/semantic
+ * Results carry a compact ProductSummary; fields= (query parameter or
+ * request body, e.g. "name,price,image") limits it to the listed fields.
  *
- * Requirements:
- * 1. Accept user query text and optional parameters
- * 2. Call SemanticSearchService to perform vector search
- * 3. Return ranked results with similarity scores
- * 4. Track and return execution time
+ * The stream endpoints write SearchStreamEvents as they become available:
+ * Server-Sent Events when the client accepts text/event-stream, NDJSON
+ * (application/x-ndjson) otherwise.
+ *
+ * All endpoints pass adaptive admission control (see
+ * SearchAdmissionLimiter); batch requests count as one request per query,
+ * up to the current limit. A /semantic request beyond the current
+ * concurrency limit gets a degraded 200 response, marked with the
+ * X-Search-Degraded header: the cached response if there is one
+ * ("cached"), otherwise keyword-only BM25 results ("lexical"). Batch and
+ * stream requests, and any request once degraded capacity is exhausted
+ * too, are refused with 503 (or 429) and Retry-After.
  */
 @RestController
 @RequestMapping("/api/search")
+@Slf4j
 public class SemanticSearchController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final String DEGRADED_HEADER = "X-Search-Degraded";
+
+    private static final String PERMIT_INTERCEPTOR = SemanticSearchController.class.getName() + ".permit";
+
     @Autowired
     private SemanticSearchService searchService;
 
+    @Autowired
+    private SearchAdmissionLimiter admissionLimiter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${search.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${search.batch.max-queries:1000}")
+    private int maxBatchQueries;
+
     /**
      * Perform semantic search using vector embeddings.
      *
      * @param request Search request with query and parameters
+     * @param fields Product fields to return, overrides request.fields
      * @return Ranked search results with similarity scores
      */
     @PostMapping("/semantic")
-    public ResponseEntity<SemanticSearchResponse> semanticSearch(@RequestBody SemanticSearchRequest request) {
-        // TODO: Implement this endpoint
+    public ResponseEntity<SemanticSearchResponse> semanticSearch(
+            @RequestBody SemanticSearchRequest request,
+            @RequestParam(value = "fields", required = false) String fields) {
+        // Validate request
+        if (request.getQuery() == null || request.getQuery().trim().isEmpty()) {
+            log.warn("Empty query received");
+            return ResponseEntity.badRequest().build();
+        }
+
+        SearchParameters parameters = parameters(request.getLimit(), request.getThreshold(), request.getMode(),
+                request.toFilter(), fields != null ? fields : request.getFields());
+        if (parameters == null) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        // Step 1: Validate request
-        // Check that query is not null or empty
+        SearchAdmissionLimiter.Permit permit = admissionLimiter.tryAcquire();
+        if (permit == null) {
+            return degrade(request.getQuery(), parameters);
+        }
+        SemanticSearchService.Execution execution;
+        try {
+            execution = searchService.execute(request.getQuery(), parameters.limit,
+                    parameters.threshold, parameters.filter, parameters.mode);
+        } catch (RuntimeException e) {
+            permit.releaseIgnored();
+            throw e;
+        }
+        // Cache hits and shared in-flight responses would drag the latency baseline towards zero
+        if (execution.isComputed()) {
+            permit.release();
+        } else {
+            permit.releaseIgnored();
+        }
 
-        // Step 2: Call search service
-        // Pass query text, limit, and threshold to service
+        return ResponseEntity.ok(execution.getResponse().select(parameters.fields));
+    }
+
+    /**
+     * Perform semantic search for a batch of queries, e.g. offline audits.
+     *
+     * @param request Queries plus parameters and filters shared by all of them
+     * @param fields Product fields to return, overrides request.fields
+     * @return One response per query, in request order
+     */
+    @PostMapping("/semantic/batch")
+    public ResponseEntity<BatchSemanticSearchResponse> semanticSearchBatch(
+            @RequestBody BatchSemanticSearchRequest request,
+            @RequestParam(value = "fields", required = false) String fields) {
+        long startTime = System.currentTimeMillis();
+
+        if (!isValidBatch(request.getQueries())) {
+            return ResponseEntity.badRequest().build();
+        }
+        SearchParameters parameters = parameters(request.getLimit(), request.getThreshold(), request.getMode(),
+                request.toFilter(), fields != null ? fields : request.getFields());
+        if (parameters == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SearchAdmissionLimiter.Permit permit = admissionLimiter.tryAcquire(request.getQueries().size());
+        if (permit == null) {
+            return refuse();
+        }
+        List<SemanticSearchResponse> results;
+        try {
+            results = searchService.searchBatch(request.getQueries(), parameters.limit,
+                    parameters.threshold, parameters.filter, parameters.mode);
+        } finally {
+            permit.releaseIgnored();
+        }
+        results = results.stream()
+                .map(response -> response.select(parameters.fields))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(new BatchSemanticSearchResponse(
+                results, results.size(), System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Streamed semantic search: one "result" event per hit in rank order,
+     * then a "complete" event.
+     *
+     * @param request Search request with query and parameters
+     * @param fields Product fields to return, overrides request.fields
+     * @param accept Accept header selecting SSE or NDJSON
+     * @param servletRequest Current request, for releasing the permit when async processing ends
+     * @return Event stream
+     */
+    @PostMapping("/semantic/stream")
+    public ResponseEntity<StreamingResponseBody> semanticSearchStream(
+            @RequestBody SemanticSearchRequest request,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestHeader(value = "Accept", required = false) String accept,
+            HttpServletRequest servletRequest) {
+        if (request.getQuery() == null || request.getQuery().trim().isEmpty()) {
+            log.warn("Empty query received");
+            return ResponseEntity.badRequest().build();
+        }
+        SearchParameters parameters = parameters(request.getLimit(), request.getThreshold(), request.getMode(),
+                request.toFilter(), fields != null ? fields : request.getFields());
+        if (parameters == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SearchAdmissionLimiter.Permit permit = admissionLimiter.tryAcquire();
+        if (permit == null) {
+            return refuse();
+        }
+
+        return stream(servletRequest, accept, permit, events -> {
+            long startTime = System.currentTimeMillis();
+            int total = searchService.searchStream(request.getQuery(), parameters.limit, parameters.threshold,
+                    parameters.filter, parameters.mode,
+                    result -> events.write(SearchStreamEvent.result(result.select(parameters.fields))));
+            events.write(SearchStreamEvent.complete(total, System.currentTimeMillis() - startTime));
+        });
+    }
+
+    /**
+     * Streamed batch search: one "response" event per query as soon as its
+     * chunk is ranked, then a "complete" event.
+     *
+     * @param request Queries plus parameters and filters shared by all of them
+     * @param fields Product fields to return, overrides request.fields
+     * @param accept Accept header selecting SSE or NDJSON
+     * @param servletRequest Current request, for releasing the permit when async processing ends
+     * @return Event stream
+     */
+    @PostMapping("/semantic/batch/stream")
+    public ResponseEntity<StreamingResponseBody> semanticSearchBatchStream(
+            @RequestBody BatchSemanticSearchRequest request,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestHeader(value = "Accept", required = false) String accept,
+            HttpServletRequest servletRequest) {
+        if (!isValidBatch(request.getQueries())) {
+            return ResponseEntity.badRequest().build();
+        }
+        SearchParameters parameters = parameters(request.getLimit(), request.getThreshold(), request.getMode(),
+                request.toFilter(), fields != null ? fields : request.getFields());
+        if (parameters == null) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        // Step 3: Return response
-        // Wrap results in ResponseEntity.ok()
+        SearchAdmissionLimiter.Permit permit = admissionLimiter.tryAcquire(request.getQueries().size());
+        if (permit == null) {
+            return refuse();
+        }
 
-        return ResponseEntity.badRequest().build(); // Replace with your implementation
+        return stream(servletRequest, accept, permit, events -> {
+            long startTime = System.currentTimeMillis();
+            int[] total = {0};
+            searchService.searchBatchStream(request.getQueries(), parameters.limit, parameters.threshold,
+                    parameters.filter, parameters.mode, (index, response) -> {
+                        total[0] += response.getTotalResults();
+                        events.write(SearchStreamEvent.response(index, response.select(parameters.fields)));
+                    });
+            events.write(SearchStreamEvent.complete(total[0], System.currentTimeMillis() - startTime));
+        });
     }
 
     /**
@@ -56,4 +271,175 @@ public class SemanticSearchController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Semantic search service is running");
     }
+
+    /**
+     * Apply defaults and validate the parameters shared by all search endpoints.
+     *
+     * @return Validated parameters, or null if the request is invalid
+     */
+    private SearchParameters parameters(Integer requestedLimit, Double requestedThreshold, String requestedMode,
+                                        SearchFilter filter, String requestedFields) {
+        // Set defaults if not provided
+        int limit = requestedLimit != null ? requestedLimit : 5;
+        double threshold = requestedThreshold != null ? requestedThreshold : 0.65;
+
+        if (limit <= 0) {
+            log.warn("Invalid limit received: {}", limit);
+            return null;
+        }
+        if (limit > maxLimit) {
+            log.warn("Limit {} exceeds the maximum of {}", limit, maxLimit);
+            return null;
+        }
+
+        SearchMode mode;
+        try {
+            mode = SearchMode.fromValue(requestedMode);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid search mode received: {}", requestedMode);
+            return null;
+        }
+
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            log.warn("Invalid price band received: {} - {}", filter.getMinPrice(), filter.getMaxPrice());
+            return null;
+        }
+
+        Set<ProductField> fields;
+        try {
+            fields = ProductField.parse(requestedFields);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid product fields received: {}", requestedFields);
+            return null;
+        }
+
+        return new SearchParameters(limit, threshold, mode, filter, fields);
+    }
+
+    /**
+     * Answer a search request shed by admission control: cached response,
+     * else keyword-only results, else refusal.
+     */
+    private ResponseEntity<SemanticSearchResponse> degrade(String query, SearchParameters parameters) {
+        if (!admissionLimiter.tryAcquireDegraded()) {
+            log.debug("Search overloaded, refusing query: '{}'", query);
+            return refuse();
+        }
+        try {
+            Optional<SemanticSearchResponse> cached = searchService.findCached(query, parameters.limit,
+                    parameters.threshold, parameters.filter, parameters.mode);
+            if (cached.isPresent()) {
+                admissionLimiter.recordShed(SearchAdmissionLimiter.ShedOutcome.CACHED);
+                return ResponseEntity.ok()
+                        .header(DEGRADED_HEADER, "cached")
+                        .body(cached.get().select(parameters.fields));
+            }
+            admissionLimiter.recordShed(SearchAdmissionLimiter.ShedOutcome.LEXICAL);
+            SemanticSearchResponse response = searchService.searchLexical(query, parameters.limit, parameters.filter);
+            return ResponseEntity.ok()
+                    .header(DEGRADED_HEADER, "lexical")
+                    .body(response.select(parameters.fields));
+        } finally {
+            admissionLimiter.releaseDegraded();
+        }
+    }
+
+    private <T> ResponseEntity<T> refuse() {
+        admissionLimiter.recordShed(SearchAdmissionLimiter.ShedOutcome.REFUSED);
+        return ResponseEntity.status(admissionLimiter.getRejectStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionLimiter.getRetryAfterSeconds()))
+                .build();
+    }
+
+    private boolean isValidBatch(List<String> queries) {
+        if (queries == null || queries.isEmpty()
+                || queries.stream().anyMatch(query -> query == null || query.trim().isEmpty())) {
+            log.warn("Batch with missing or empty queries received");
+            return false;
+        }
+        if (queries.size() > maxBatchQueries) {
+            log.warn("Batch of {} queries exceeds the limit of {}", queries.size(), maxBatchQueries);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run a producer on the async request thread, writing and flushing each event as it is produced.
+     * The admission permit is held until the stream is complete. It is also released when async
+     * processing ends without the body having run (timeout, executor rejection, client abort).
+     */
+    private ResponseEntity<StreamingResponseBody> stream(HttpServletRequest servletRequest, String accept,
+                                                         SearchAdmissionLimiter.Permit permit,
+                                                         EventProducer producer) {
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+        WebAsyncUtils.getAsyncManager(servletRequest).registerCallableInterceptor(PERMIT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.releaseIgnored();
+                    }
+                });
+
+        StreamingResponseBody body = out -> {
+            EventWriter events = event -> writeEvent(out, event, sse);
+            try {
+                producer.produce(events);
+            } catch (UncheckedIOException e) {
+                // Client went away; nothing left to write to
+                throw e.getCause();
+            } catch (RuntimeException e) {
+                log.error("Streamed search failed", e);
+                events.write(SearchStreamEvent.error(e.getMessage()));
+            } finally {
+                permit.releaseIgnored();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : NDJSON)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
+    private void writeEvent(OutputStream out, SearchStreamEvent event, boolean sse) {
+        try {
+            String json = objectMapper.writeValueAsString(event);
+            String frame = sse ? "event: " + event.getType() + "\ndata: " + json + "\n\n" : json + "\n";
+            out.write(frame.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface EventWriter {
+        void write(SearchStreamEvent event);
+    }
+
+    @FunctionalInterface
+    private interface EventProducer {
+        void produce(EventWriter events);
+    }
+
+    private static final class SearchParameters {
+        private final int limit;
+        private final double threshold;
+        private final SearchMode mode;
+        private final SearchFilter filter;
+        private final Set<ProductField> fields;
+
+        private SearchParameters(int limit, double threshold, SearchMode mode, SearchFilter filter,
+                                 Set<ProductField> fields) {
+            this.limit = limit;
+            this.threshold = threshold;
+            this.mode = mode;
+            this.filter = filter;
+            this.fields = fields;
+        }
+    }
 }
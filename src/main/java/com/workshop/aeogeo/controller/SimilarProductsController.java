@@ -0,0 +1,69 @@
+package com.workshop.aeogeo.controller;
+
+import com.workshop.aeogeo.dto.ProductField;
+import com.workshop.aeogeo.dto.SearchResult;
+import com.workshop.aeogeo.dto.SimilarProductsResponse;
+import com.workshop.aeogeo.service.SemanticSearchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Similar Products Controller
+ *
+ * Endpoint: GET /api/products/{id}/similar
+ *
+ * Serves "customers also viewed"-style recommendations from the
+ * precomputed k-NN graph (see SimilarProductGraph), so a request is a
+ * hash lookup plus one product query. Returns 404 while the graph is
+ * disabled (search.similar.enabled) or until the product's
+ * neighbours have been computed.
+ */
+@RestController
+@RequestMapping("/api/products")
+@Slf4j
+public class SimilarProductsController {
+
+    @Autowired
+    private SemanticSearchService searchService;
+
+    /**
+     * Get the products most similar to a product.
+     *
+     * @param id Product ID
+     * @param limit Maximum number of results (default 5, capped by search.similar.neighbours)
+     * @param fields Product fields to return, e.g. "name,price,image"
+     * @return Similar products with similarity scores, best first
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<SimilarProductsResponse> getSimilarProducts(
+            @PathVariable Long id,
+            @RequestParam(value = "limit", defaultValue = "5") int limit,
+            @RequestParam(value = "fields", required = false) String fields) {
+        if (limit <= 0) {
+            log.warn("Invalid limit received: {}", limit);
+            return ResponseEntity.badRequest().build();
+        }
+
+        Set<ProductField> selected;
+        try {
+            selected = ProductField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid product fields received: {}", fields);
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<List<SearchResult>> results = searchService.findSimilar(id, limit);
+        if (results.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        SimilarProductsResponse response = new SimilarProductsResponse(id, results.get(), results.get().size());
+        return ResponseEntity.ok(response.select(selected));
+    }
+}
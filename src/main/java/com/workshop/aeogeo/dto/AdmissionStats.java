@@ -0,0 +1,42 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for semantic search admission control statistics.
+ *
+ * Counters are cumulative since startup. Rejected requests were either
+ * served a degraded response or refused with Retry-After.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionStats {
+
+    private boolean enabled;
+
+    /** Current adaptive concurrency limit. */
+    private int limit;
+
+    private int inFlight;
+
+    /** Average search latency in the last sampling window. */
+    private double latencyMs;
+
+    /** Unloaded search latency the limit is measured against. */
+    private double baselineLatencyMs;
+
+    private long latencySloMs;
+
+    private long accepted;
+
+    private long rejected;
+
+    private long degradedCached;
+
+    private long degradedLexical;
+
+    private long refused;
+}
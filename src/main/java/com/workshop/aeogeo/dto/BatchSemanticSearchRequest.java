@@ -0,0 +1,53 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Request DTO for batch semantic search.
+ *
+ * limit, threshold, mode and filters apply to every query of the batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSemanticSearchRequest {
+
+    private List<String> queries;
+
+    private Integer limit = 5;
+
+    private Double threshold = 0.65;
+
+    /**
+     * "semantic" (default), "hybrid" or "multi-vector" (see SearchMode)
+     */
+    private String mode;
+
+    /**
+     * Comma-separated product fields to return, e.g. "name,price,image"
+     * (see ProductField); all fields when omitted
+     */
+    private String fields;
+
+    /**
+     * Optional filters (see SearchFilter)
+     */
+    private List<String> categories;
+
+    private List<String> manufacturers;
+
+    private Boolean inStock;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    public SearchFilter toFilter() {
+        return new SearchFilter(categories, manufacturers, inStock, minPrice, maxPrice);
+    }
+}
@@ -0,0 +1,23 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for batch semantic search: one SemanticSearchResponse per
+ * query, in request order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSemanticSearchResponse {
+
+    private List<SemanticSearchResponse> results;
+
+    private int totalQueries;
+
+    private long executionTimeMs;
+}
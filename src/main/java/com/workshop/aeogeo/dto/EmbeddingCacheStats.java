@@ -0,0 +1,38 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for query-embedding cache statistics.
+ *
+ * Counters are cumulative since startup; every miss is one
+ * embedding provider call.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingCacheStats {
+
+    private boolean enabled;
+
+    private long entries;
+
+    private long weightedSizeBytes;
+
+    private long maxBytes;
+
+    private long requests;
+
+    private long hits;
+
+    private long misses;
+
+    private double hitRate;
+
+    private long evictions;
+
+    /** Total weight (bytes) of evicted entries. */
+    private long evictedBytes;
+}
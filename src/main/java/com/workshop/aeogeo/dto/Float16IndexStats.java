@@ -0,0 +1,44 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for half-precision (float16) index statistics.
+ *
+ * Compares the float16 ranking against exact float32 scores of the
+ * embeddings stored in pgvector. Recall fields stay 0 unless the column
+ * is a float32 vector.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Float16IndexStats {
+
+    private int vectors;
+
+    private int dimension;
+
+    /** Bytes stored per product (float16 values plus norm, if any). */
+    private int bytesPerVector;
+
+    /** Bytes a float32 copy of the same vector would take. */
+    private int float32BytesPerVector;
+
+    private long heapBytes;
+
+    /** Type of products.embedding: "vector" (float32) or "halfvec". */
+    private String baselineType;
+
+    /** k used for the recall measurement. */
+    private int k;
+
+    private int evaluationQueries;
+
+    /** Fraction of the exact float32 top-k found in the float16 top-k. */
+    private double recallAtK;
+
+    /** Largest difference between a float16 and the exact float32 similarity. */
+    private double maxScoreError;
+}
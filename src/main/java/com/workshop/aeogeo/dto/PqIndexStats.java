@@ -0,0 +1,45 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for product-quantization index statistics.
+ *
+ * Reports memory per vector next to measured recall so the
+ * memory/accuracy trade-off of a given configuration can be compared.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PqIndexStats {
+
+    private int vectors;
+
+    private int dimension;
+
+    private int subspaces;
+
+    private int centroidsPerSubspace;
+
+    private int trainingSamples;
+
+    /** Bytes stored per product (codes plus norm, if any). */
+    private int bytesPerVector;
+
+    /** Bytes a float32 copy of the same vector would take. */
+    private int float32BytesPerVector;
+
+    private double compressionRatio;
+
+    private long codebookBytes;
+
+    /** k used for the recall measurement. */
+    private int k;
+
+    private int evaluationQueries;
+
+    /** Fraction of the exact top-k found in the PQ top-k. */
+    private double recallAtK;
+}
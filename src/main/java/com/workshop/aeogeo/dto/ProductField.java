@@ -0,0 +1,57 @@
+package com.workshop.aeogeo.dto;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Product fields selectable with the fields= parameter of the search
+ * endpoints. The product id is always returned.
+ */
+public enum ProductField {
+
+    CODE,
+
+    NAME,
+
+    SUMMARY,
+
+    /**
+     * Price and currency
+     */
+    PRICE,
+
+    /**
+     * Manufacturer name
+     */
+    BRAND,
+
+    /**
+     * Average rating and review count
+     */
+    RATING,
+
+    /**
+     * Primary image URL
+     */
+    IMAGE;
+
+    /**
+     * Parse a comma-separated list case-insensitively; null or blank means all fields.
+     *
+     * @throws IllegalArgumentException for unknown field names
+     */
+    public static Set<ProductField> parse(String value) {
+        if (value == null || value.isBlank()) {
+            return EnumSet.allOf(ProductField.class);
+        }
+        Set<ProductField> fields = EnumSet.noneOf(ProductField.class);
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty() && !trimmed.equalsIgnoreCase("id")) {
+                fields.add(valueOf(trimmed.toUpperCase(Locale.ROOT)));
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,61 @@
+package com.workshop.aeogeo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+/**
+ * Compact product representation returned by search.
+ *
+ * Loaded for all hits of a search with one query (see
+ * ProductRepository.findListingsByIds) instead of serializing ProductModel
+ * entities with their lazy relations and raw embedding. Fields not
+ * selected with fields= are null and omitted from the JSON.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductSummary {
+
+    private Long id;
+
+    private String code;
+
+    private String name;
+
+    private String summary;
+
+    private BigDecimal price;
+
+    private String currency;
+
+    private String brand;
+
+    private Double averageRating;
+
+    private Integer reviewCount;
+
+    private String imageUrl;
+
+    /**
+     * Copy holding only the selected fields (and the id).
+     */
+    public ProductSummary select(Set<ProductField> fields) {
+        return new ProductSummary(
+                id,
+                fields.contains(ProductField.CODE) ? code : null,
+                fields.contains(ProductField.NAME) ? name : null,
+                fields.contains(ProductField.SUMMARY) ? summary : null,
+                fields.contains(ProductField.PRICE) ? price : null,
+                fields.contains(ProductField.PRICE) ? currency : null,
+                fields.contains(ProductField.BRAND) ? brand : null,
+                fields.contains(ProductField.RATING) ? averageRating : null,
+                fields.contains(ProductField.RATING) ? reviewCount : null,
+                fields.contains(ProductField.IMAGE) ? imageUrl : null);
+    }
+}
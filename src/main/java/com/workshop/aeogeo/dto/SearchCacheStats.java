@@ -0,0 +1,55 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for semantic result cache statistics.
+ *
+ * Counters are cumulative since startup. A stale miss is an entry found
+ * for the key but built from an older catalog version.
+ *
+ * hits/misses count exact (normalized query text) lookups; the near*
+ * counters cover the similarity-keyed layer, which is only consulted
+ * after an exact miss.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCacheStats {
+
+    private boolean enabled;
+
+    private long entries;
+
+    private long maxEntries;
+
+    private long catalogVersion;
+
+    private long requests;
+
+    private long hits;
+
+    private long misses;
+
+    private long staleMisses;
+
+    private double hitRate;
+
+    private long evictions;
+
+    private boolean similarityEnabled;
+
+    private double similarityRadius;
+
+    private long nearEntries;
+
+    private long nearRequests;
+
+    private long nearHits;
+
+    private long nearMisses;
+
+    private double nearHitRate;
+}
@@ -0,0 +1,52 @@
+package com.workshop.aeogeo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Attribute constraints applied before vector scoring.
+ *
+ * Values within one attribute are OR-ed, attributes are AND-ed.
+ * Null fields do not constrain.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFilter {
+
+    /**
+     * Category codes; a product matches its own category and every ancestor
+     */
+    private List<String> categories;
+
+    /**
+     * Manufacturer codes
+     */
+    private List<String> manufacturers;
+
+    /**
+     * true = only in-stock products, false = only out-of-stock products
+     */
+    private Boolean inStock;
+
+    /**
+     * Inclusive price band on PriceRowModel.price
+     */
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return (categories == null || categories.isEmpty())
+                && (manufacturers == null || manufacturers.isEmpty())
+                && inStock == null
+                && minPrice == null
+                && maxPrice == null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.workshop.aeogeo.dto;
+
+import java.util.Locale;
+
+/**
+ * Ranking strategy for /api/search/semantic.
+ */
+public enum SearchMode {
+
+    /**
+     * Vector similarity only
+     */
+    SEMANTIC,
+
+    /**
+     * Vector and BM25 rankings fused with reciprocal rank fusion;
+     * exact SKU/EAN/model-number queries short-circuit to the product
+     */
+    HYBRID,
+
+    /**
+     * Vector similarity over per-chunk product embeddings (header,
+     * description chunks, attribute block), aggregated per product
+     */
+    MULTI_VECTOR;
+
+    /**
+     * Parse a request value case-insensitively ("multi-vector" and
+     * "multi_vector" are equivalent); null means SEMANTIC.
+     *
+     * @throws IllegalArgumentException for unknown values
+     */
+    public static SearchMode fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return SEMANTIC;
+        }
+        return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -1,10 +1,11 @@
 package com.workshop.aeogeo.dto;
 
-import com.workshop.aeogeo.model.ProductModel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Set;
+
 /**
  * Individual search result with similarity score.
  */
@@ -13,9 +14,16 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class SearchResult {
 
-    private ProductModel product;
+    private ProductSummary product;
 
     private double similarity;
 
     private int rank;
+
+    /**
+     * Copy with only the selected product fields.
+     */
+    public SearchResult select(Set<ProductField> fields) {
+        return new SearchResult(product.select(fields), similarity, rank);
+    }
 }
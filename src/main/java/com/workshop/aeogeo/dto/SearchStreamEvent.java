@@ -0,0 +1,57 @@
+package com.workshop.aeogeo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One event of a streamed search (an NDJSON line or an SSE message).
+ *
+ * Types:
+ * - result: a single ranked result (streamed single-query search)
+ * - response: the complete response for one query (streamed batch search)
+ * - complete: end of stream, with totals and execution time
+ * - error: the search failed after the stream had started
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SearchStreamEvent {
+
+    public static final String RESULT = "result";
+    public static final String RESPONSE = "response";
+    public static final String COMPLETE = "complete";
+    public static final String ERROR = "error";
+
+    private String type;
+
+    private Integer queryIndex;
+
+    private SearchResult result;
+
+    private SemanticSearchResponse response;
+
+    private Integer totalResults;
+
+    private Long executionTimeMs;
+
+    private String message;
+
+    public static SearchStreamEvent result(SearchResult result) {
+        return new SearchStreamEvent(RESULT, null, result, null, null, null, null);
+    }
+
+    public static SearchStreamEvent response(int queryIndex, SemanticSearchResponse response) {
+        return new SearchStreamEvent(RESPONSE, queryIndex, null, response, null, null, null);
+    }
+
+    public static SearchStreamEvent complete(int totalResults, long executionTimeMs) {
+        return new SearchStreamEvent(COMPLETE, null, null, null, totalResults, executionTimeMs, null);
+    }
+
+    public static SearchStreamEvent error(String message) {
+        return new SearchStreamEvent(ERROR, null, null, null, null, null, message);
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Response DTO for semantic search.
@@ -21,4 +23,14 @@ public class SemanticSearchResponse {
     private long executionTimeMs;
 
     private int totalResults;
+
+    /**
+     * Copy with only the selected product fields in every result.
+     */
+    public SemanticSearchResponse select(Set<ProductField> fields) {
+        List<SearchResult> selected = results.stream()
+                .map(result -> result.select(fields))
+                .collect(Collectors.toList());
+        return new SemanticSearchResponse(query, selected, executionTimeMs, totalResults);
+    }
 }
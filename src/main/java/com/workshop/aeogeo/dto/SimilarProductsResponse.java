@@ -0,0 +1,34 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Response DTO for GET /api/products/{id}/similar.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarProductsResponse {
+
+    private Long productId;
+
+    private List<SearchResult> results;
+
+    private int totalResults;
+
+    /**
+     * Copy with only the selected product fields in every result.
+     */
+    public SimilarProductsResponse select(Set<ProductField> fields) {
+        List<SearchResult> selected = results.stream()
+                .map(result -> result.select(fields))
+                .collect(Collectors.toList());
+        return new SimilarProductsResponse(productId, selected, totalResults);
+    }
+}
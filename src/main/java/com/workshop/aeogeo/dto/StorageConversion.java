@@ -0,0 +1,23 @@
+package com.workshop.aeogeo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a products.embedding storage type conversion.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageConversion {
+
+    private String previousType;
+
+    private String columnType;
+
+    /** false if the column already had the requested type. */
+    private boolean converted;
+
+    private long durationMs;
+}
@@ -0,0 +1,33 @@
+package com.workshop.aeogeo.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that publishes a CatalogChangedEvent on every write
+ * to a searchable entity (ProductModel, PriceRowModel, ClassificationAttributeModel).
+ *
+ * The callbacks run during the flush, before the transaction commits;
+ * listeners that must only see committed data subscribe with
+ * {@code @TransactionalEventListener} (see CatalogVersion).
+ *
+ * Spring Boot registers Spring as Hibernate's bean container, so this
+ * listener is a regular Spring bean with injected dependencies.
+ */
+@Component
+public class CatalogChangeListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(entity));
+    }
+}
@@ -0,0 +1,13 @@
+package com.workshop.aeogeo.model;
+
+import lombok.Value;
+
+/**
+ * A searchable catalog entity was inserted, updated or deleted.
+ */
+@Value
+public class CatalogChangedEvent {
+
+    /** The written entity. */
+    Object entity;
+}
@@ -28,6 +28,7 @@ import lombok.AllArgsConstructor;
  * - "Care Instructions" = "Machine wash cold"
  */
 @Entity
+@EntityListeners(CatalogChangeListener.class)
 @Table(name = "classification_attributes")
 @Data
 @NoArgsConstructor
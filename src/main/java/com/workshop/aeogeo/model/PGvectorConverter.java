@@ -0,0 +1,35 @@
+package com.workshop.aeogeo.model;
+
+import com.pgvector.PGvector;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.sql.SQLException;
+
+/**
+ * JPA converter for pgvector columns.
+ *
+ * Hibernate has no built-in mapping for the pgvector type, so the vector
+ * travels as its text form ("[0.1,0.2,...]") and is cast back to vector
+ * on write (see @ColumnTransformer on ProductModel.embedding).
+ */
+@Converter
+public class PGvectorConverter implements AttributeConverter<PGvector, String> {
+
+    @Override
+    public String convertToDatabaseColumn(PGvector vector) {
+        return vector != null ? vector.getValue() : null;
+    }
+
+    @Override
+    public PGvector convertToEntityAttribute(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new PGvector(value);
+        } catch (SQLException e) {
+            throw new IllegalArgumentException("Invalid vector value: " + value, e);
+        }
+    }
+}
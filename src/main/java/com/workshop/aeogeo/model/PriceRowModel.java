@@ -20,6 +20,7 @@ import java.time.LocalDateTime;
  * For this workshop, we'll use a simplified version.
  */
 @Entity
+@EntityListeners(CatalogChangeListener.class)
 @Table(name = "price_rows")
 @Data
 @NoArgsConstructor
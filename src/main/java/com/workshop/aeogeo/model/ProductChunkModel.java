@@ -0,0 +1,65 @@
+package com.workshop.aeogeo.model;
+
+import com.pgvector.PGvector;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.ColumnTransformer;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * ProductChunkModel - one embedded piece of a product's text
+ *
+ * Besides the single ProductModel.embedding, a product can be represented
+ * by several smaller vectors: a header (name, brand, summary), one per
+ * description chunk and one for the classification attribute block.
+ * Multi-vector search scores the chunks and aggregates per product
+ * (see MultiVectorIndex).
+ */
+@Entity
+@Table(name = "product_chunks", indexes = @Index(name = "idx_product_chunks_product", columnList = "product_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChunkModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The product this chunk belongs to; chunks are deleted with it
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private ProductModel product;
+
+    /**
+     * Part of the product the text was taken from
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ChunkType chunkType;
+
+    /**
+     * Position within the product (description chunks in text order)
+     */
+    private Integer position;
+
+    /**
+     * Unit-length embedding of the chunk text
+     */
+    @Column(columnDefinition = "vector(1536)")
+    @Convert(converter = PGvectorConverter.class)
+    @ColumnTransformer(write = "?::vector")
+    private PGvector embedding;
+
+    public enum ChunkType {
+        HEADER,
+        DESCRIPTION,
+        ATTRIBUTES
+    }
+}
@@ -1,9 +1,11 @@
 package com.workshop.aeogeo.model;
 
+import com.pgvector.PGvector;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.ColumnTransformer;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -21,6 +23,7 @@ import java.util.List;
  * - Apparel: T-shirts, Jackets, Shoes
  */
 @Entity
+@EntityListeners(CatalogChangeListener.class)
 @Table(name = "products")
 @Data
 @NoArgsConstructor
@@ -109,6 +112,22 @@ public class ProductModel {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<MediaModel> images = new ArrayList<>();
 
+    /**
+     * Semantic embedding of the product text (pgvector)
+     * Populated by EmbeddingGenerationService, searched with the <=> cosine operator
+     */
+    @Column(columnDefinition = "vector(1536)")
+    @Convert(converter = PGvectorConverter.class)
+    @ColumnTransformer(write = "?::vector")
+    private PGvector embedding;
+
+    /**
+     * L2 norm of the embedding as returned by the provider
+     * Set when embeddings are stored unit-length (embedding.normalize=true),
+     * null if the stored vector is un-normalized
+     */
+    private Float embeddingNorm;
+
     /**
      * Approval status (SAP Commerce workflow)
      */
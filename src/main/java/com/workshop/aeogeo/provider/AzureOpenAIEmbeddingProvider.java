@@ -135,6 +135,11 @@ public class AzureOpenAIEmbeddingProvider implements EmbeddingProvider {
         return "Azure OpenAI";
     }
 
+    @Override
+    public String getModelName() {
+        return deploymentName;
+    }
+
     @Override
     public boolean isAvailable() {
         return endpoint != null && !endpoint.isEmpty() &&
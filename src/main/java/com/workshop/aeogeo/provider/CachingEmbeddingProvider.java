@@ -0,0 +1,87 @@
+package com.workshop.aeogeo.provider;
+
+import com.workshop.aeogeo.service.embedding.EmbeddingCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CachingEmbeddingProvider - EmbeddingProvider decorator backed by EmbeddingCache
+ *
+ * Repeated texts are answered from the shared query-embedding cache;
+ * batch calls send only the cache misses to the wrapped provider.
+ * Failed embeddings (exceptions or null) are never cached.
+ */
+public class CachingEmbeddingProvider implements EmbeddingProvider {
+
+    private final EmbeddingProvider delegate;
+    private final EmbeddingCache cache;
+
+    public CachingEmbeddingProvider(EmbeddingProvider delegate, EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public float[] embed(String text) throws EmbeddingException {
+        float[] cached = cache.get(getProviderName(), getModelName(), text);
+        if (cached != null) {
+            return Arrays.copyOf(cached, cached.length);
+        }
+        float[] embedding = delegate.embed(text);
+        if (embedding != null) {
+            cache.put(getProviderName(), getModelName(), text, Arrays.copyOf(embedding, embedding.length));
+        }
+        return embedding;
+    }
+
+    @Override
+    public List<float[]> embedBatch(List<String> texts) throws EmbeddingException {
+        List<float[]> results = new ArrayList<>(texts.size());
+        List<String> misses = new ArrayList<>();
+        List<Integer> missPositions = new ArrayList<>();
+
+        for (int i = 0; i < texts.size(); i++) {
+            float[] cached = cache.get(getProviderName(), getModelName(), texts.get(i));
+            results.add(cached != null ? Arrays.copyOf(cached, cached.length) : null);
+            if (cached == null) {
+                misses.add(texts.get(i));
+                missPositions.add(i);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            List<float[]> generated = delegate.embedBatch(misses);
+            for (int i = 0; i < generated.size(); i++) {
+                float[] embedding = generated.get(i);
+                results.set(missPositions.get(i), embedding);
+                if (embedding != null) {
+                    cache.put(getProviderName(), getModelName(), misses.get(i),
+                            Arrays.copyOf(embedding, embedding.length));
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public int getDimension() {
+        return delegate.getDimension();
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+}
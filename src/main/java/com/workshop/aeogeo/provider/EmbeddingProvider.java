@@ -60,6 +60,15 @@ public interface EmbeddingProvider {
      */
     String getProviderName();
 
+    /**
+     * Get the model producing the embeddings (part of the embedding cache key)
+     *
+     * @return Model or deployment name; the provider name if there is only one model
+     */
+    default String getModelName() {
+        return getProviderName();
+    }
+
     /**
      * Check if provider is available/configured
      *
@@ -107,6 +107,11 @@ public class OllamaEmbeddingProvider implements EmbeddingProvider {
         return "Ollama (Local - " + model + ")";
     }
 
+    @Override
+    public String getModelName() {
+        return model;
+    }
+
     @Override
     public boolean isAvailable() {
         try {
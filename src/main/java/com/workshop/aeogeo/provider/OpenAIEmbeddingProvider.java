@@ -93,6 +93,11 @@ public class OpenAIEmbeddingProvider implements EmbeddingProvider {
         return "OpenAI (" + model + ")";
     }
 
+    @Override
+    public String getModelName() {
+        return model;
+    }
+
     @Override
     public boolean isAvailable() {
         return apiKey != null && !apiKey.isEmpty() && apiKey.startsWith("sk-");
@@ -0,0 +1,11 @@
+package com.workshop.aeogeo.repository;
+
+/**
+ * Projection of a category and its parent, for walking the hierarchy.
+ */
+public interface CategoryLink {
+
+    String getCode();
+
+    String getParentCode();
+}
@@ -0,0 +1,24 @@
+package com.workshop.aeogeo.repository;
+
+import com.workshop.aeogeo.model.CategoryModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CategoryRepository extends JpaRepository<CategoryModel, Long> {
+
+    /**
+     * Find category by code (unique identifier)
+     */
+    Optional<CategoryModel> findByCode(String code);
+
+    /**
+     * Every category with its parent code (null for roots)
+     */
+    @Query("SELECT c.code AS code, parent.code AS parentCode FROM CategoryModel c LEFT JOIN c.parent parent")
+    List<CategoryLink> findAllLinks();
+}
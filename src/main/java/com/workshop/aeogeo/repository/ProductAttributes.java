@@ -0,0 +1,22 @@
+package com.workshop.aeogeo.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection of the filterable product attributes.
+ *
+ * Used to build search filter bitmaps without loading ProductModel
+ * entities or their lazy relations.
+ */
+public interface ProductAttributes {
+
+    Long getId();
+
+    String getCategoryCode();
+
+    String getManufacturerCode();
+
+    Integer getStockLevel();
+
+    BigDecimal getPrice();
+}
@@ -0,0 +1,33 @@
+package com.workshop.aeogeo.repository;
+
+import com.workshop.aeogeo.model.ProductChunkModel;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Repository
+public interface ProductChunkRepository extends JpaRepository<ProductChunkModel, Long> {
+
+    /**
+     * Ids of products that already have chunk embeddings
+     */
+    @Query("SELECT DISTINCT c.product.id FROM ProductChunkModel c")
+    Set<Long> findChunkedProductIds();
+
+    /**
+     * Every chunk embedding in pgvector text form, grouped by product.
+     *
+     * Must be consumed inside a transaction; the fetch size keeps the driver
+     * from buffering the whole result set.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query(value = "SELECT c.product_id AS id, CAST(c.embedding AS text) AS embedding " +
+                   "FROM product_chunks c WHERE c.embedding IS NOT NULL " +
+                   "ORDER BY c.product_id, c.chunk_type, c.position", nativeQuery = true)
+    Stream<ProductEmbedding> streamAllEmbeddings();
+}
@@ -0,0 +1,11 @@
+package com.workshop.aeogeo.repository;
+
+/**
+ * Projection of a product id and its embedding in pgvector text form.
+ */
+public interface ProductEmbedding {
+
+    Long getId();
+
+    String getEmbedding();
+}
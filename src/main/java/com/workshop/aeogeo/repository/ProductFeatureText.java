@@ -0,0 +1,13 @@
+package com.workshop.aeogeo.repository;
+
+/**
+ * Projection of one classification attribute of a product.
+ */
+public interface ProductFeatureText {
+
+    Long getProductId();
+
+    String getAttributeName();
+
+    String getAttributeValue();
+}
@@ -0,0 +1,32 @@
+package com.workshop.aeogeo.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection of the product fields shown in search results.
+ *
+ * Loaded with one query per search instead of ProductModel entities, so
+ * serializing results never touches lazy relations.
+ */
+public interface ProductListing {
+
+    Long getId();
+
+    String getCode();
+
+    String getName();
+
+    String getSummary();
+
+    BigDecimal getPrice();
+
+    String getCurrency();
+
+    String getBrand();
+
+    Double getAverageRating();
+
+    Integer getReviewCount();
+
+    String getImageUrl();
+}
@@ -1,12 +1,18 @@
 package com.workshop.aeogeo.repository;
 
 import com.workshop.aeogeo.model.ProductModel;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<ProductModel, Long> {
@@ -42,9 +48,198 @@ public interface ProductRepository extends JpaRepository<ProductModel, Long> {
 
     /**
      * Search products by name or description
+     *
+     * Unindexed LIKE scan; see searchProductsFullText, searchProductsBySubstring
+     * and searchProductsBySimilarity for the indexed alternatives.
      */
     @Query("SELECT p FROM ProductModel p WHERE " +
            "LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<ProductModel> searchProducts(String searchTerm);
+
+    /**
+     * Full-text search on the generated search_vector column (GIN index).
+     *
+     * Accepts web-search syntax ("quoted phrases", -exclusions, OR) and ranks
+     * by ts_rank_cd, so name matches outrank description matches.
+     * Columns are created by ProductTextIndexManager.
+     */
+    @Query(value = "SELECT p.* FROM products p " +
+                   "WHERE p.search_vector @@ websearch_to_tsquery('english', :query) " +
+                   "ORDER BY ts_rank_cd(p.search_vector, websearch_to_tsquery('english', :query)) DESC " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<ProductModel> searchProductsFullText(@Param("query") String query, @Param("limit") int limit);
+
+    /**
+     * Substring search on the generated search_text column.
+     *
+     * Same semantics as searchProducts, but the pg_trgm GIN index answers
+     * LIKE '%term%' without a sequential scan (terms of 3+ characters).
+     */
+    @Query(value = "SELECT p.* FROM products p " +
+                   "WHERE p.search_text LIKE CONCAT('%', LOWER(:term), '%') " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<ProductModel> searchProductsBySubstring(@Param("term") String term, @Param("limit") int limit);
+
+    /**
+     * Typo-tolerant search: products whose text contains a word similar to the term
+     * (pg_trgm word similarity, threshold pg_trgm.word_similarity_threshold, default 0.6).
+     */
+    @Query(value = "SELECT p.* FROM products p " +
+                   "WHERE LOWER(:term) <% p.search_text " +
+                   "ORDER BY word_similarity(LOWER(:term), p.search_text) DESC " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<ProductModel> searchProductsBySimilarity(@Param("term") String term, @Param("limit") int limit);
+
+    /**
+     * k-NN search on the embedding column using pgvector's cosine distance operator.
+     *
+     * Ordering by the raw "<=>" expression (not the derived similarity) lets
+     * Postgres answer from the HNSW/IVFFlat index, and the LIMIT stops the
+     * index scan after k candidates instead of ranking the whole table.
+     *
+     * @param queryEmbedding Query vector in pgvector text form, e.g. "[0.1,0.2,...]"
+     * @param maxDistance Maximum cosine distance (1 - similarity threshold)
+     * @param limit Maximum number of rows
+     */
+    @Query(value = "SELECT p.id AS id, 1 - (p.embedding <=> CAST(:queryEmbedding AS vector)) AS similarity " +
+                   "FROM products p " +
+                   "WHERE p.embedding IS NOT NULL " +
+                   "AND p.embedding <=> CAST(:queryEmbedding AS vector) <= :maxDistance " +
+                   "ORDER BY p.embedding <=> CAST(:queryEmbedding AS vector) " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<ProductSimilarity> findNearestByEmbedding(@Param("queryEmbedding") String queryEmbedding,
+                                                   @Param("maxDistance") double maxDistance,
+                                                   @Param("limit") int limit);
+
+    /**
+     * Stream (id, embedding) pairs for building in-memory vector indexes.
+     *
+     * Reads the vector in its text form and never instantiates ProductModel.
+     * Must be consumed inside a transaction; the fetch size keeps the driver
+     * from buffering the whole result set.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query(value = "SELECT p.id AS id, CAST(p.embedding AS text) AS embedding " +
+                   "FROM products p WHERE p.embedding IS NOT NULL ORDER BY p.id", nativeQuery = true)
+    Stream<ProductEmbedding> streamAllEmbeddings();
+
+    /**
+     * Most recent product modification, used to detect stale search snapshots
+     */
+    @Query("SELECT MAX(p.modifiedTime) FROM ProductModel p")
+    Optional<LocalDateTime> findLatestModifiedTime();
+
+    /**
+     * Number of products with an embedding, used with findLatestModifiedTime()
+     * to detect deleted products in search snapshots
+     */
+    @Query(value = "SELECT COUNT(*) FROM products p WHERE p.embedding IS NOT NULL", nativeQuery = true)
+    long countEmbedded();
+
+    /**
+     * Filterable attributes of every product, for the search filter bitmaps
+     */
+    @Query("SELECT p.id AS id, c.code AS categoryCode, m.code AS manufacturerCode, " +
+           "p.stockLevel AS stockLevel, pr.price AS price " +
+           "FROM ProductModel p LEFT JOIN p.category c LEFT JOIN p.manufacturer m LEFT JOIN p.priceRow pr")
+    List<ProductAttributes> findAllAttributes();
+
+    /**
+     * Exact k-NN search over a small set of product ids (see findNearestByEmbedding).
+     *
+     * The ids are fetched through the primary key and every distance is
+     * computed; the MATERIALIZED CTE keeps the planner from using the
+     * vector index, whose candidates would be filtered after the scan.
+     *
+     * @param productIds Allowed ids as a Postgres array literal, e.g. "{1,2,3}"
+     */
+    @Query(value = "WITH candidates AS MATERIALIZED (" +
+                   "SELECT p.id AS id, p.embedding <=> CAST(:queryEmbedding AS vector) AS distance " +
+                   "FROM products p " +
+                   "WHERE p.embedding IS NOT NULL " +
+                   "AND p.id = ANY(CAST(:productIds AS bigint[]))) " +
+                   "SELECT id, 1 - distance AS similarity FROM candidates " +
+                   "WHERE distance <= :maxDistance " +
+                   "ORDER BY distance " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<ProductSimilarity> findNearestExactWithin(@Param("queryEmbedding") String queryEmbedding,
+                                                   @Param("maxDistance") double maxDistance,
+                                                   @Param("limit") int limit,
+                                                   @Param("productIds") String productIds);
+
+    /**
+     * Index k-NN search restricted to the products set in a bitmap.
+     *
+     * The bitmap test is applied to the rows the vector index returns, so
+     * fewer than limit rows come back when too few of the index's
+     * candidates pass it; the caller sizes hnsw.ef_search to the filter and
+     * falls back to findNearestExactMatching.
+     *
+     * @param allowedIds Bitmap with bit i set for product id i (BitSet.toByteArray layout)
+     * @param allowedBits Number of bits in the bitmap
+     */
+    @Query(value = "SELECT p.id AS id, 1 - (p.embedding <=> CAST(:queryEmbedding AS vector)) AS similarity " +
+                   "FROM products p " +
+                   "WHERE p.embedding IS NOT NULL " +
+                   "AND CASE WHEN p.id < :allowedBits " +
+                   "THEN get_bit(CAST(:allowedIds AS bytea), CAST(p.id AS int)) = 1 ELSE false END " +
+                   "AND p.embedding <=> CAST(:queryEmbedding AS vector) <= :maxDistance " +
+                   "ORDER BY p.embedding <=> CAST(:queryEmbedding AS vector) " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<ProductSimilarity> findNearestByEmbeddingMatching(@Param("queryEmbedding") String queryEmbedding,
+                                                           @Param("maxDistance") double maxDistance,
+                                                           @Param("limit") int limit,
+                                                           @Param("allowedIds") byte[] allowedIds,
+                                                           @Param("allowedBits") long allowedBits);
+
+    /**
+     * Exact k-NN search over the products set in a bitmap: a sequential
+     * scan that computes the distance of every allowed product.
+     *
+     * @param allowedIds Bitmap with bit i set for product id i (BitSet.toByteArray layout)
+     * @param allowedBits Number of bits in the bitmap
+     */
+    @Query(value = "WITH candidates AS MATERIALIZED (" +
+                   "SELECT p.id AS id, p.embedding <=> CAST(:queryEmbedding AS vector) AS distance " +
+                   "FROM products p " +
+                   "WHERE p.embedding IS NOT NULL " +
+                   "AND CASE WHEN p.id < :allowedBits " +
+                   "THEN get_bit(CAST(:allowedIds AS bytea), CAST(p.id AS int)) = 1 ELSE false END) " +
+                   "SELECT id, 1 - distance AS similarity FROM candidates " +
+                   "WHERE distance <= :maxDistance " +
+                   "ORDER BY distance " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<ProductSimilarity> findNearestExactMatching(@Param("queryEmbedding") String queryEmbedding,
+                                                     @Param("maxDistance") double maxDistance,
+                                                     @Param("limit") int limit,
+                                                     @Param("allowedIds") byte[] allowedIds,
+                                                     @Param("allowedBits") long allowedBits);
+
+    /**
+     * Search result fields of the given products, in no particular order;
+     * the primary image is picked with a correlated subquery
+     */
+    @Query("SELECT p.id AS id, p.code AS code, p.name AS name, p.summary AS summary, " +
+           "pr.price AS price, pr.currency AS currency, m.name AS brand, " +
+           "p.averageRating AS averageRating, p.reviewCount AS reviewCount, " +
+           "(SELECT MIN(i.url) FROM MediaModel i WHERE i.product = p AND i.isPrimary = true) AS imageUrl " +
+           "FROM ProductModel p LEFT JOIN p.manufacturer m LEFT JOIN p.priceRow pr " +
+           "WHERE p.id IN :ids")
+    List<ProductListing> findListingsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Searchable text of every product, for the in-process lexical index
+     */
+    @Query("SELECT p.id AS id, p.code AS code, p.ean AS ean, p.name AS name, p.summary AS summary, " +
+           "p.description AS description, m.name AS manufacturerName " +
+           "FROM ProductModel p LEFT JOIN p.manufacturer m")
+    List<ProductText> findAllText();
+
+    /**
+     * Classification attributes of every product, for the in-process lexical index
+     */
+    @Query("SELECT a.product.id AS productId, a.attributeName AS attributeName, a.attributeValue AS attributeValue " +
+           "FROM ClassificationAttributeModel a")
+    List<ProductFeatureText> findAllFeatureText();
 }
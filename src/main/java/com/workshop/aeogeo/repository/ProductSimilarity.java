@@ -0,0 +1,14 @@
+package com.workshop.aeogeo.repository;
+
+/**
+ * Projection for vector similarity queries.
+ *
+ * Only the product id and score are read, so ranking never
+ * loads ProductModel entities or their lazy relations.
+ */
+public interface ProductSimilarity {
+
+    Long getId();
+
+    Double getSimilarity();
+}
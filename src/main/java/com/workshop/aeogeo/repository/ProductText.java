@@ -0,0 +1,21 @@
+package com.workshop.aeogeo.repository;
+
+/**
+ * Projection of the searchable text fields of a product.
+ */
+public interface ProductText {
+
+    Long getId();
+
+    String getCode();
+
+    String getEan();
+
+    String getName();
+
+    String getSummary();
+
+    String getDescription();
+
+    String getManufacturerName();
+}
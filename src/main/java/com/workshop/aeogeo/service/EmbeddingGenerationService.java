@@ -1,32 +1,78 @@
 package com.workshop.aeogeo.service;
 
 import com.pgvector.PGvector;
+import com.workshop.aeogeo.model.ProductChunkModel;
+import com.workshop.aeogeo.model.ProductChunkModel.ChunkType;
 import com.workshop.aeogeo.model.ProductModel;
+import com.workshop.aeogeo.repository.ProductChunkRepository;
+import com.workshop.aeogeo.repository.ProductFeatureText;
 import com.workshop.aeogeo.repository.ProductRepository;
+import com.workshop.aeogeo.repository.ProductText;
 import com.workshop.aeogeo.service.embedding.EmbeddingProvider;
+import com.workshop.aeogeo.service.search.SimilarProductGraph;
+import com.workshop.aeogeo.service.search.SimilarityKernels;
+import com.workshop.aeogeo.service.search.VectorSearchBackend;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Service to generate and populate product embeddings.
  *
  * This runs on application startup and generates embeddings
  * for any products that don't have them yet.
+ *
+ * With embedding.normalize=true (default) vectors are stored unit-length
+ * and the original norm is kept in ProductModel.embeddingNorm, so search
+ * scores each candidate with a dot product instead of a full cosine.
+ * Embeddings stored before the option was enabled are normalized on the
+ * next startup.
+ *
+ * With search.multi-vector.enabled=true each product is also split into
+ * chunks (header, description pieces of at most chunk-chars characters,
+ * classification attribute block) that are embedded separately for
+ * multi-vector search (see MultiVectorIndex).
  */
 @Service
 @Slf4j
 public class EmbeddingGenerationService {
 
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private EmbeddingProvider embeddingProvider;
 
+    @Autowired
+    private VectorSearchBackend searchBackend;
+
+    @Autowired
+    private ProductChunkRepository chunkRepository;
+
+    @Autowired
+    private SimilarProductGraph similarProducts;
+
+    @Value("${embedding.normalize:true}")
+    private boolean normalizeEmbeddings;
+
+    @Value("${search.multi-vector.enabled:false}")
+    private boolean chunksEnabled;
+
+    @Value("${search.multi-vector.chunk-chars:800}")
+    private int chunkChars;
+
     /**
      * Generate embeddings for all products without them.
      * Runs automatically on application startup.
@@ -37,7 +83,9 @@ public class EmbeddingGenerationService {
 
         List<ProductModel> products = productRepository.findAll();
         int generated = 0;
+        int normalized = 0;
         int skipped = 0;
+        int failed = 0;
 
         for (ProductModel product : products) {
             if (product.getEmbedding() == null) {
@@ -48,27 +96,116 @@ public class EmbeddingGenerationService {
                     // Generate embedding
                     List<Float> embedding = embeddingProvider.generateEmbedding(text);
 
-                    // Convert to PGvector
-                    Float[] array = embedding.toArray(new Float[0]);
-                    PGvector pgVector = new PGvector(array);
-
-                    // Save to product
-                    product.setEmbedding(pgVector);
-                    productRepository.save(product);
+                    // Convert, normalize and save to product
+                    storeEmbedding(product, toArray(embedding));
 
                     generated++;
                     log.debug("Generated embedding for product: {}", product.getName());
                 } catch (Exception e) {
+                    failed++;
                     log.error("Failed to generate embedding for product {}: {}",
                             product.getName(), e.getMessage());
                 }
+            } else if (normalizeEmbeddings && product.getEmbeddingNorm() == null) {
+                try {
+                    // Stored before normalization was enabled
+                    storeEmbedding(product, product.getEmbedding().toArray());
+                    normalized++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("Failed to normalize embedding for product {}: {}",
+                            product.getName(), e.getMessage());
+                }
             } else {
                 skipped++;
             }
         }
 
-        log.info("Embedding generation complete. Generated: {}, Skipped (already exists): {}, Total: {}",
-                generated, skipped, products.size());
+        log.info("Embedding generation complete. Generated: {}, Normalized: {}, Skipped (already exists): {}, "
+                + "Failed: {}, Total: {}", generated, normalized, skipped, failed, products.size());
+
+        if (chunksEnabled) {
+            generateChunkEmbeddings();
+        }
+    }
+
+    /**
+     * Generate chunk embeddings for all products without them.
+     *
+     * Reads text projections only, so no product entity or lazy relation
+     * is loaded; each product's chunks are embedded with one provider call.
+     */
+    private void generateChunkEmbeddings() {
+        Set<Long> chunked = chunkRepository.findChunkedProductIds();
+        Map<Long, List<ProductFeatureText>> featuresByProduct = new HashMap<>();
+        for (ProductFeatureText feature : productRepository.findAllFeatureText()) {
+            featuresByProduct.computeIfAbsent(feature.getProductId(), id -> new ArrayList<>()).add(feature);
+        }
+
+        int generated = 0;
+        int chunkCount = 0;
+        for (ProductText product : productRepository.findAllText()) {
+            if (chunked.contains(product.getId())) {
+                continue;
+            }
+            try {
+                List<ChunkText> chunks = buildProductChunks(product,
+                        featuresByProduct.getOrDefault(product.getId(), List.of()));
+                List<List<Float>> embeddings = embeddingProvider.generateEmbeddings(chunks.stream()
+                        .map(chunk -> chunk.text)
+                        .collect(Collectors.toList()));
+
+                ProductModel reference = productRepository.getReferenceById(product.getId());
+                List<ProductChunkModel> models = new ArrayList<>(chunks.size());
+                for (int i = 0; i < chunks.size(); i++) {
+                    ChunkText chunk = chunks.get(i);
+                    // Chunks are always unit-length: they are only ever compared by cosine
+                    float[] embedding = SimilarityKernels.normalize(toArray(embeddings.get(i)));
+                    models.add(new ProductChunkModel(null, reference, chunk.type, chunk.position,
+                            new PGvector(embedding)));
+                }
+                chunkRepository.saveAll(models);
+
+                generated++;
+                chunkCount += models.size();
+            } catch (Exception e) {
+                log.error("Failed to generate chunk embeddings for product {}: {}",
+                        product.getName(), e.getMessage());
+            }
+        }
+
+        log.info("Chunk embedding generation complete. Products: {}, Chunks: {}, Skipped (already chunked): {}",
+                generated, chunkCount, chunked.size());
+    }
+
+    /**
+     * Store an embedding on the product, L2-normalizing it first if enabled,
+     * and hand it to the active search backend and the similar-product graph.
+     *
+     * @param product Product to update
+     * @param embedding Raw embedding
+     */
+    private void storeEmbedding(ProductModel product, float[] embedding) {
+        float[] stored = embedding;
+        if (normalizeEmbeddings) {
+            product.setEmbeddingNorm(SimilarityKernels.get().norm(embedding));
+            stored = SimilarityKernels.normalize(embedding);
+        }
+
+        product.setEmbedding(new PGvector(stored));
+        productRepository.save(product);
+
+        // Keep in-memory search indexes in step with pgvector
+        searchBackend.index(product.getId(), stored);
+        similarProducts.refresh(product.getId(), stored);
+    }
+
+    private float[] toArray(List<Float> embedding) {
+        float[] array = new float[embedding.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = embedding.get(i);
+        }
+        return array;
     }
 
     /**
@@ -102,4 +239,78 @@ public class EmbeddingGenerationService {
 
         return text.toString();
     }
+
+    /**
+     * Split a product into separately embedded chunks: a header (name,
+     * manufacturer, summary), description pieces and the attribute block.
+     */
+    private List<ChunkText> buildProductChunks(ProductText product, List<ProductFeatureText> features) {
+        List<ChunkText> chunks = new ArrayList<>();
+
+        StringBuilder header = new StringBuilder(product.getName());
+        if (product.getManufacturerName() != null) {
+            header.append(" by ").append(product.getManufacturerName());
+        }
+        if (product.getSummary() != null) {
+            header.append(". ").append(product.getSummary());
+        }
+        chunks.add(new ChunkText(ChunkType.HEADER, 0, header.toString()));
+
+        if (product.getDescription() != null) {
+            List<String> pieces = splitText(product.getDescription(), chunkChars);
+            for (int i = 0; i < pieces.size(); i++) {
+                // Prefix the name so a piece still says which product it describes
+                chunks.add(new ChunkText(ChunkType.DESCRIPTION, i, product.getName() + ": " + pieces.get(i)));
+            }
+        }
+
+        if (!features.isEmpty()) {
+            String attributes = features.stream()
+                    .map(feature -> feature.getAttributeName() + ": " + feature.getAttributeValue())
+                    .collect(Collectors.joining("; "));
+            chunks.add(new ChunkText(ChunkType.ATTRIBUTES, 0, product.getName() + " - " + attributes));
+        }
+        return chunks;
+    }
+
+    /**
+     * Split text at sentence ends into pieces of at most maxChars
+     * characters; longer sentences are cut at the last space.
+     */
+    private static List<String> splitText(String text, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder piece = new StringBuilder();
+        for (String sentence : SENTENCE_END.split(text.trim())) {
+            if (piece.length() > 0 && piece.length() + 1 + sentence.length() > maxChars) {
+                pieces.add(piece.toString());
+                piece.setLength(0);
+            }
+            while (sentence.length() > maxChars) {
+                int cut = sentence.lastIndexOf(' ', maxChars);
+                cut = cut > 0 ? cut : maxChars;
+                pieces.add(sentence.substring(0, cut).trim());
+                sentence = sentence.substring(cut).trim();
+            }
+            if (piece.length() > 0) {
+                piece.append(' ');
+            }
+            piece.append(sentence);
+        }
+        if (!piece.toString().isBlank()) {
+            pieces.add(piece.toString());
+        }
+        return pieces;
+    }
+
+    private static final class ChunkText {
+        private final ChunkType type;
+        private final int position;
+        private final String text;
+
+        private ChunkText(ChunkType type, int position, String text) {
+            this.type = type;
+            this.position = position;
+            this.text = text;
+        }
+    }
 }
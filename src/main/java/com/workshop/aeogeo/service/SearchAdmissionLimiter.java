@@ -0,0 +1,316 @@
+package com.workshop.aeogeo.service;
+
+import com.workshop.aeogeo.dto.AdmissionStats;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive concurrency limit for semantic search requests.
+ *
+ * Requests beyond the current limit are turned away immediately (the
+ * controller degrades or rejects them) instead of queueing for Tomcat
+ * threads. The limit follows observed latency, gradient style, and is
+ * updated once per sampling window (at least 100ms and 10 samples):
+ * - rtt: average search latency in the window, sampled from searches
+ *   that were actually computed (not from cache hits)
+ * - baseline: lowest window latency seen, i.e. the latency of an unloaded
+ *   service; it drifts slowly towards rtt while the limit is not what
+ *   holds requests back (window under half the limit, or the limit at
+ *   min-limit), so that a permanently slower backend becomes the new normal
+ * - gradient = tolerance * baseline / rtt, clamped to [0.5, 1]; it drops
+ *   below 1 once requests start queueing somewhere downstream (embedding
+ *   provider, database, scan threads)
+ * - newLimit = limit * gradient + sqrt(limit), smoothed into the limit
+ * The sqrt(limit) headroom keeps probing for more capacity while latency
+ * is flat. A window latency above the latency SLO caps the gradient at
+ * slo / rtt, so the limit shrinks until the SLO is met again. The limit
+ * only grows while at least half of it was in use during the window.
+ *
+ * A batch request takes one permit per query, capped at the current
+ * limit so that a batch larger than the limit still runs once the
+ * service is otherwise idle.
+ *
+ * Shed requests may be served a degraded response (cached or lexical-only
+ * results); those run under a separate fixed permit count so that a storm
+ * cannot exhaust the request threads through the fallback either.
+ *
+ * Configuration (search.admission.*):
+ * - enabled: default true; when false every request is admitted
+ * - initial-limit: default 10; start low so the baseline latency is measured unloaded
+ * - min-limit / max-limit: default 4 / 100 (keep below server.tomcat.threads.max)
+ * - latency-slo: default 500ms
+ * - tolerance: latency / baseline ratio still treated as unloaded, default 1.5
+ * - smoothing: weight of each new limit estimate, default 0.2
+ * - degraded.enabled: serve cached or lexical-only results to shed requests, default true
+ * - degraded.concurrency: concurrent degraded responses, default 50
+ * - reject-status: status of refused requests, 429 or 503 (default 503)
+ * - retry-after: minimum Retry-After of refused requests, default 1s
+ */
+@Component
+@Slf4j
+public class SearchAdmissionLimiter {
+
+    private static final long WINDOW_NANOS = 100_000_000L;
+    private static final int WINDOW_MIN_SAMPLES = 10;
+    private static final double BASELINE_DRIFT = 0.01;
+    private static final double MIN_GRADIENT = 0.5;
+
+    @Value("${search.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.admission.initial-limit:10}")
+    private int initialLimit;
+
+    @Value("${search.admission.min-limit:4}")
+    private int minLimit;
+
+    @Value("${search.admission.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${search.admission.latency-slo:500ms}")
+    private Duration latencySlo;
+
+    @Value("${search.admission.tolerance:1.5}")
+    private double tolerance;
+
+    @Value("${search.admission.smoothing:0.2}")
+    private double smoothing;
+
+    @Value("${search.admission.degraded.enabled:true}")
+    private boolean degradedEnabled;
+
+    @Value("${search.admission.degraded.concurrency:50}")
+    private int degradedConcurrency;
+
+    @Value("${search.admission.reject-status:503}")
+    private int rejectStatus;
+
+    @Value("${search.admission.retry-after:1s}")
+    private Duration retryAfter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong degradedCached = new AtomicLong();
+    private final AtomicLong degradedLexical = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private Semaphore degradedPermits;
+
+    /** Current limit; written under the monitor, read without it. */
+    private volatile double limit;
+    private double rttNanos;
+    private double baselineRttNanos;
+
+    /** Current sampling window, guarded by the monitor. */
+    private long windowStartNanos;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    @PostConstruct
+    public void initialize() {
+        limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        degradedPermits = new Semaphore(degradedConcurrency);
+        if (rejectStatus != 429 && rejectStatus != 503) {
+            throw new IllegalStateException("search.admission.reject-status must be 429 or 503, got " + rejectStatus);
+        }
+    }
+
+    /**
+     * Admit a request if the limit allows it.
+     *
+     * @return Permit to release when the request is done, or null if the request must be shed
+     */
+    public Permit tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Admit a request worth several searches, e.g. a batch, if the limit allows it.
+     *
+     * @param weight Searches the request performs; capped at the current limit
+     * @return Permit holding the weight, or null if the request must be shed
+     */
+    public Permit tryAcquire(int weight) {
+        while (true) {
+            int current = inFlight.get();
+            int taken = Math.max(1, Math.min(weight, (int) limit));
+            if (enabled && current + taken > (int) limit) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + taken)) {
+                accepted.incrementAndGet();
+                return new Permit(System.nanoTime(), taken);
+            }
+        }
+    }
+
+    /**
+     * Take a permit for a degraded response to a shed request.
+     *
+     * @return false if degraded mode is off or its permits are exhausted; refuse the request then
+     */
+    public boolean tryAcquireDegraded() {
+        return degradedEnabled && degradedPermits.tryAcquire();
+    }
+
+    public void releaseDegraded() {
+        degradedPermits.release();
+    }
+
+    /**
+     * Count how a shed request was answered.
+     */
+    public void recordShed(ShedOutcome outcome) {
+        switch (outcome) {
+            case CACHED -> degradedCached.incrementAndGet();
+            case LEXICAL -> degradedLexical.incrementAndGet();
+            case REFUSED -> refused.incrementAndGet();
+        }
+    }
+
+    public int getRejectStatus() {
+        return rejectStatus;
+    }
+
+    /**
+     * Seconds a refused client should wait: the configured minimum, or the
+     * current search latency if that is longer.
+     */
+    public long getRetryAfterSeconds() {
+        double shortRttSeconds;
+        synchronized (this) {
+            shortRttSeconds = rttNanos / 1e9;
+        }
+        return Math.max(Math.max(1, retryAfter.toSeconds()), (long) Math.ceil(shortRttSeconds));
+    }
+
+    public AdmissionStats getStats() {
+        AdmissionStats stats = new AdmissionStats();
+        stats.setEnabled(enabled);
+        stats.setLimit((int) limit);
+        stats.setInFlight(inFlight.get());
+        synchronized (this) {
+            stats.setLatencyMs(rttNanos / 1e6);
+            stats.setBaselineLatencyMs(baselineRttNanos / 1e6);
+        }
+        stats.setLatencySloMs(latencySlo.toMillis());
+        stats.setAccepted(accepted.get());
+        stats.setRejected(rejected.get());
+        stats.setDegradedCached(degradedCached.get());
+        stats.setDegradedLexical(degradedLexical.get());
+        stats.setRefused(refused.get());
+        return stats;
+    }
+
+    /**
+     * Feed one search latency into the current window; update the limit when the window closes.
+     */
+    private synchronized void onSample(long sampleNanos, int inFlightAtStart) {
+        long now = System.nanoTime();
+        if (windowSamples == 0) {
+            windowStartNanos = now;
+        }
+        windowRttSum += sampleNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        if (windowSamples < WINDOW_MIN_SAMPLES || now - windowStartNanos < WINDOW_NANOS) {
+            return;
+        }
+
+        rttNanos = (double) windowRttSum / windowSamples;
+        int maxInFlight = windowMaxInFlight;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        boolean appLimited = maxInFlight < limit / 2;
+        if (baselineRttNanos == 0 || rttNanos < baselineRttNanos) {
+            baselineRttNanos = rttNanos;
+        } else if (appLimited || limit <= minLimit) {
+            // Not caused by our own queueing, so treat it as the service's current speed
+            baselineRttNanos += (rttNanos - baselineRttNanos) * BASELINE_DRIFT;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * baselineRttNanos / rttNanos));
+        double sloNanos = latencySlo.toNanos();
+        if (rttNanos > sloNanos) {
+            gradient = Math.min(gradient, Math.max(MIN_GRADIENT, sloNanos / rttNanos));
+        }
+        if (gradient >= 1.0 && appLimited) {
+            // Not limited by us: no evidence that more concurrency would be served as fast
+            return;
+        }
+
+        double estimate = limit * gradient + Math.sqrt(limit);
+        double newLimit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + estimate * smoothing));
+        if ((int) newLimit != (int) limit) {
+            log.debug("Search concurrency limit {} -> {} (latency {}ms, baseline {}ms)", (int) limit, (int) newLimit,
+                    Math.round(rttNanos / 1e6), Math.round(baselineRttNanos / 1e6));
+        }
+        limit = newLimit;
+    }
+
+    /**
+     * How a request beyond the limit was answered.
+     */
+    public enum ShedOutcome {
+        /** Complete response from the result cache. */
+        CACHED,
+        /** BM25-only ranking, no embedding call or vector scan. */
+        LEXICAL,
+        /** Refused with reject-status and Retry-After. */
+        REFUSED
+    }
+
+    /**
+     * Admission of one request. Release exactly once.
+     */
+    public final class Permit {
+        private final long startNanos;
+        private final int weight;
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(long startNanos, int weight) {
+            this.startNanos = startNanos;
+            this.weight = weight;
+            this.inFlightAtStart = inFlight.get();
+        }
+
+        /**
+         * Release after a search computed by this request and record its latency.
+         */
+        public void release() {
+            if (markReleased()) {
+                onSample(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+
+        /**
+         * Release without a latency sample, e.g. after a failure, a cache
+         * hit or a response shared with an identical in-flight search, or
+         * for batch and streamed requests whose duration says little about load.
+         */
+        public void releaseIgnored() {
+            markReleased();
+        }
+
+        private synchronized boolean markReleased() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            inFlight.addAndGet(-weight);
+            return true;
+        }
+    }
+}
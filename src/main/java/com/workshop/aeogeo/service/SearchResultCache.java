@@ -0,0 +1,277 @@
+package com.workshop.aeogeo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.workshop.aeogeo.dto.SearchCacheStats;
+import com.workshop.aeogeo.dto.SearchFilter;
+import com.workshop.aeogeo.dto.SearchMode;
+import com.workshop.aeogeo.dto.SemanticSearchResponse;
+import com.workshop.aeogeo.service.embedding.EmbeddingCache;
+import com.workshop.aeogeo.service.search.CatalogVersion;
+import com.workshop.aeogeo.service.search.SimHashIndex;
+import com.workshop.aeogeo.service.search.VectorMatch;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of complete SemanticSearchResponse results.
+ *
+ * Keyed by (normalized query, limit, threshold, filters, mode); the query
+ * is normalized the same way as in EmbeddingCache. Each entry records the
+ * CatalogVersion it was computed under and is discarded on lookup once
+ * the version has moved, so any product write invalidates every cached
+ * result without scanning the cache.
+ *
+ * A second, approximate layer works on query embeddings: the backend
+ * ranking of each embedded query is kept in a SimHashIndex, and a later
+ * query whose embedding lies within search.result-cache.similarity.radius
+ * (cosine) of a stored one, with the same threshold and filters, reuses
+ * that ranking instead of scanning the catalog. Paraphrases such as
+ * "best mirrorless camera for video" and "top mirrorless video camera"
+ * then share results. Reused similarities are those of the original
+ * query. The approximate layer is cleared whenever the catalog version
+ * moves.
+ *
+ * Configuration (search.result-cache.*):
+ * - enabled: default true
+ * - max-entries: default 10000
+ * - ttl: upper bound on entry age, default 10m
+ * - similarity.enabled: default true
+ * - similarity.radius: minimum cosine to a stored query, default 0.95
+ * - similarity.max-entries: default 2000
+ */
+@Component
+@Slf4j
+public class SearchResultCache {
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Value("${search.result-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.result-cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${search.result-cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${search.result-cache.similarity.enabled:true}")
+    private boolean similarityEnabled;
+
+    @Value("${search.result-cache.similarity.radius:0.95}")
+    private double similarityRadius;
+
+    @Value("${search.result-cache.similarity.max-entries:2000}")
+    private int similarityMaxEntries;
+
+    private Cache<Key, Entry> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleMisses = new AtomicLong();
+
+    private SimHashIndex<Ranking> similarQueries;
+    private volatile long similarQueriesVersion;
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong nearMisses = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        similarQueries = new SimHashIndex<>(4, 8, similarityMaxEntries, 42);
+        similarQueriesVersion = catalogVersion.current();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Build the cache key for a request.
+     */
+    public Key key(String query, int limit, double threshold, SearchFilter filter, SearchMode mode) {
+        return new Key(EmbeddingCache.normalize(query), limit, threshold, effective(filter), mode);
+    }
+
+    /**
+     * Catalog version to pass to put(); read it before computing the result
+     * so that writes made while searching are not masked.
+     */
+    public long currentVersion() {
+        return catalogVersion.current();
+    }
+
+    /**
+     * Cached response for the current catalog version, or null.
+     */
+    public SemanticSearchResponse get(Key key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.version != catalogVersion.current()) {
+            cache.invalidate(key);
+            staleMisses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.response;
+    }
+
+    /**
+     * Cache a response computed under the given catalog version.
+     */
+    public void put(Key key, long version, SemanticSearchResponse response) {
+        if (enabled) {
+            cache.put(key, new Entry(version, response));
+        }
+    }
+
+    /**
+     * Backend ranking of a previously seen query within the similarity radius.
+     *
+     * @param queryEmbedding Query embedding
+     * @param count Number of matches the caller would request from the backend
+     * @param threshold Minimum similarity threshold of the request
+     * @param filter Attribute filters of the request, may be null
+     * @return Up to count matches, or null if no similar query is cached
+     */
+    public List<VectorMatch> getSimilar(float[] queryEmbedding, int count, double threshold, SearchFilter filter) {
+        if (!enabled || !similarityEnabled) {
+            return null;
+        }
+        syncSimilarQueries(catalogVersion.current());
+
+        SearchFilter effectiveFilter = effective(filter);
+        SimHashIndex.Match<Ranking> match = similarQueries.findNearest(queryEmbedding, similarityRadius,
+                ranking -> ranking.covers(count, threshold, effectiveFilter));
+        if (match == null) {
+            nearMisses.incrementAndGet();
+            return null;
+        }
+        nearHits.incrementAndGet();
+        log.debug("Reusing ranking of a similar query (cosine {})", match.getSimilarity());
+        List<VectorMatch> matches = match.getValue().matches;
+        return matches.size() <= count ? matches : matches.subList(0, count);
+    }
+
+    /**
+     * Remember a backend ranking for similar future queries.
+     *
+     * @param version Catalog version read before the backend was called
+     */
+    public void putSimilar(float[] queryEmbedding, int count, double threshold, SearchFilter filter, long version,
+                           List<VectorMatch> matches) {
+        if (!enabled || !similarityEnabled) {
+            return;
+        }
+        long current = catalogVersion.current();
+        syncSimilarQueries(current);
+        if (version == current) {
+            similarQueries.add(queryEmbedding, new Ranking(count, threshold, effective(filter), List.copyOf(matches)));
+        }
+    }
+
+    public SearchCacheStats getStats() {
+        SearchCacheStats stats = new SearchCacheStats();
+        stats.setEnabled(enabled);
+        stats.setEntries(cache.estimatedSize());
+        stats.setMaxEntries(maxEntries);
+        stats.setCatalogVersion(catalogVersion.current());
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setStaleMisses(staleMisses.get());
+        long requests = hits.get() + misses.get() + staleMisses.get();
+        stats.setRequests(requests);
+        stats.setHitRate(requests == 0 ? 0.0 : (double) hits.get() / requests);
+        stats.setEvictions(cache.stats().evictionCount());
+
+        stats.setSimilarityEnabled(similarityEnabled);
+        stats.setSimilarityRadius(similarityRadius);
+        stats.setNearEntries(similarQueries.size());
+        long nearRequests = nearHits.get() + nearMisses.get();
+        stats.setNearRequests(nearRequests);
+        stats.setNearHits(nearHits.get());
+        stats.setNearMisses(nearMisses.get());
+        stats.setNearHitRate(nearRequests == 0 ? 0.0 : (double) nearHits.get() / nearRequests);
+        return stats;
+    }
+
+    /**
+     * Drop all stored query rankings once the catalog version has moved.
+     */
+    private void syncSimilarQueries(long current) {
+        if (current != similarQueriesVersion) {
+            synchronized (this) {
+                if (current != similarQueriesVersion) {
+                    similarQueries.clear();
+                    similarQueriesVersion = current;
+                }
+            }
+        }
+    }
+
+    private static SearchFilter effective(SearchFilter filter) {
+        return filter == null || filter.isEmpty() ? null : filter;
+    }
+
+    @lombok.Value
+    public static class Key {
+        String query;
+        int limit;
+        double threshold;
+        SearchFilter filter;
+        SearchMode mode;
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final SemanticSearchResponse response;
+
+        private Entry(long version, SemanticSearchResponse response) {
+            this.version = version;
+            this.response = response;
+        }
+    }
+
+    /**
+     * Backend ranking of one query embedding and the request it answered.
+     */
+    private static final class Ranking {
+        private final int count;
+        private final double threshold;
+        private final SearchFilter filter;
+        private final List<VectorMatch> matches;
+
+        private Ranking(int count, double threshold, SearchFilter filter, List<VectorMatch> matches) {
+            this.count = count;
+            this.threshold = threshold;
+            this.filter = filter;
+            this.matches = matches;
+        }
+
+        /**
+         * Whether this ranking contains the top count matches for the given request.
+         */
+        private boolean covers(int requestedCount, double requestedThreshold, SearchFilter requestedFilter) {
+            return count >= requestedCount && threshold == requestedThreshold
+                    && Objects.equals(filter, requestedFilter);
+        }
+    }
+}
@@ -1,26 +1,66 @@
 package com.workshop.aeogeo.service;
 
+import com.workshop.aeogeo.dto.ProductSummary;
+import com.workshop.aeogeo.dto.SearchFilter;
+import com.workshop.aeogeo.dto.SearchMode;
 import com.workshop.aeogeo.dto.SearchResult;
 import com.workshop.aeogeo.dto.SemanticSearchResponse;
-import com.workshop.aeogeo.model.ProductModel;
+import com.workshop.aeogeo.repository.ProductListing;
 import com.workshop.aeogeo.repository.ProductRepository;
 import com.workshop.aeogeo.service.embedding.EmbeddingProvider;
+import com.workshop.aeogeo.service.search.LexicalSearchIndex;
+import com.workshop.aeogeo.service.search.MultiVectorIndex;
+import com.workshop.aeogeo.service.search.ProductFilterIndex;
+import com.workshop.aeogeo.service.search.SimilarProductGraph;
+import com.workshop.aeogeo.service.search.SimilarityKernels;
+import com.workshop.aeogeo.service.search.SingleFlight;
+import com.workshop.aeogeo.service.search.VectorMatch;
+import com.workshop.aeogeo.service.search.VectorSearchBackend;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Semantic Search Service - Exercise 3: RAG Pipeline
  *
- * TODO: Implement semantic search using vector embeddings and pgvector
- *
  * This service:
  * 1. Generates embeddings for user queries
- * 2. Searches products using cosine similarity
- * 3. Ranks results by similarity score
+ * 2. Asks the configured VectorSearchBackend for the nearest products
+ * 3. Loads compact projections of the matching products (one query, rank order kept)
  * 4. Returns formatted search response
+ *
+ * Ranking, threshold and limit are applied by the backend (by default a
+ * pgvector k-NN query), so the catalog is never loaded into the heap.
+ * Attribute filters are resolved to a product id bitmap first (see
+ * ProductFilterIndex), so excluded products are never scored.
+ *
+ * Hybrid mode also ranks the query with the in-process BM25 index (see
+ * LexicalSearchIndex) and merges both rankings with reciprocal rank
+ * fusion: score = sum of 1 / (k + rank). Exact SKU/EAN/model-number
+ * queries return the product without calling the embedding provider.
+ *
+ * Multi-vector mode ranks products by their chunk embeddings instead of
+ * the single product embedding (see MultiVectorIndex), and falls back to
+ * the backend while no chunks have been generated.
+ *
+ * Complete responses are cached per (query, limit, threshold, filters,
+ * mode) until the next catalog write, and backend rankings are reused
+ * for paraphrased queries whose embeddings are close (see SearchResultCache).
+ * Identical requests that arrive while the first one is still being
+ * computed (e.g. a crawler fanning out) wait for it and share its response
+ * instead of embedding and ranking again (see SingleFlight).
  */
 @Service
 @Slf4j
@@ -32,6 +72,45 @@ public class SemanticSearchService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private VectorSearchBackend searchBackend;
+
+    @Autowired
+    private ProductFilterIndex filterIndex;
+
+    @Autowired
+    private LexicalSearchIndex lexicalIndex;
+
+    @Autowired
+    private SearchResultCache resultCache;
+
+    @Autowired
+    private MultiVectorIndex multiVectorIndex;
+
+    @Autowired
+    private SimilarProductGraph similarProductGraph;
+
+    @Value("${search.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${search.hybrid.candidates:50}")
+    private int hybridCandidates;
+
+    @Value("${embedding.normalize:true}")
+    private boolean normalizeEmbeddings;
+
+    @Value("${search.coalescing.enabled:true}")
+    private boolean coalescing;
+
+    @Value("${search.stream.page-size:50}")
+    private int streamPageSize;
+
+    @Value("${search.stream.batch-chunk:64}")
+    private int streamBatchChunk;
+
+    /** In-flight searches by request and catalog version. */
+    private final SingleFlight<InFlightKey, SemanticSearchResponse> inFlightSearches = new SingleFlight<>();
+
     /**
      * Perform semantic search for products.
      *
@@ -41,73 +120,456 @@ public class SemanticSearchService {
      * @return Search response with ranked results
      */
     public SemanticSearchResponse search(String query, int limit, double threshold) {
-        // TODO: Implement semantic search
+        return search(query, limit, threshold, null);
+    }
+
+    /**
+     * Perform semantic search among products matching attribute filters.
+     *
+     * @param query Query text
+     * @param limit Maximum number of results
+     * @param threshold Minimum similarity threshold
+     * @param filter Attribute filters, may be null
+     * @return Search response with ranked results
+     */
+    public SemanticSearchResponse search(String query, int limit, double threshold, SearchFilter filter) {
+        return search(query, limit, threshold, filter, SearchMode.SEMANTIC);
+    }
 
+    /**
+     * Perform semantic or hybrid search among products matching attribute filters.
+     *
+     * In hybrid mode the threshold only applies to the vector ranking;
+     * keyword-only matches are reported with similarity 0.
+     *
+     * @param query Query text
+     * @param limit Maximum number of results
+     * @param threshold Minimum similarity threshold
+     * @param filter Attribute filters, may be null
+     * @param mode Semantic, hybrid or multi-vector ranking
+     * @return Search response with ranked results
+     */
+    public SemanticSearchResponse search(String query, int limit, double threshold, SearchFilter filter,
+                                         SearchMode mode) {
+        return execute(query, limit, threshold, filter, mode).getResponse();
+    }
+
+    /**
+     * Same as search(), also reporting whether this call did the work.
+     *
+     * Used by admission control, whose latency samples must come from
+     * computed searches only: cache hits and responses shared from an
+     * in-flight search say nothing about how loaded the backends are.
+     *
+     * @return Response, and whether it was computed rather than cached or shared
+     */
+    public Execution execute(String query, int limit, double threshold, SearchFilter filter, SearchMode mode) {
         long startTime = System.currentTimeMillis();
 
-        // Step 1: Generate embedding for the query
-        // Use embeddingProvider.generateEmbedding(query)
-        // Convert List<Float> to format needed for database query
+        // Whole responses are reused until the next catalog write
+        SearchResultCache.Key cacheKey = resultCache.key(query, limit, threshold, filter, mode);
+        SemanticSearchResponse cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            log.info("Result cache hit for query: '{}'", query);
+            return new Execution(buildResponse(query, cached.getResults(), startTime), false);
+        }
+        long catalogVersion = resultCache.currentVersion();
 
-        // Step 2: Search database using vector similarity
-        // For now, we'll use a simple approach:
-        // - Fetch all products
-        // - Calculate similarity for each
-        // - Sort and filter
-        // (Advanced: Use native pgvector query for better performance)
+        if (!coalescing) {
+            return new Execution(compute(query, limit, threshold, filter, mode, cacheKey, catalogVersion, startTime),
+                    true);
+        }
+        // Keyed by catalog version too, so a request never joins a search started before a catalog write
+        SingleFlight.Result<SemanticSearchResponse> flight = inFlightSearches.execute(
+                new InFlightKey(cacheKey, catalogVersion),
+                () -> compute(query, limit, threshold, filter, mode, cacheKey, catalogVersion, startTime));
+        if (flight.isShared()) {
+            log.info("Joined in-flight search for query: '{}'", query);
+            return new Execution(buildResponse(query, flight.getValue().getResults(), startTime), false);
+        }
+        return new Execution(flight.getValue(), true);
+    }
 
-        // Step 3: Calculate cosine similarity
-        // similarity = cosineSimilarity(queryEmbedding, productEmbedding)
+    /**
+     * Perform a search and hand each result to a consumer as soon as it is loaded.
+     *
+     * Ranking is the same as search(); products are then loaded and emitted
+     * in pages of search.stream.page-size in rank order, so a large limit
+     * never holds every entity at once. Streamed results are not added to
+     * the result cache, but a cached response is replayed.
+     *
+     * @param query Query text
+     * @param limit Maximum number of results
+     * @param threshold Minimum similarity threshold
+     * @param filter Attribute filters, may be null
+     * @param mode Semantic, hybrid or multi-vector ranking
+     * @param consumer Receives results in rank order
+     * @return Number of results emitted
+     */
+    public int searchStream(String query, int limit, double threshold, SearchFilter filter, SearchMode mode,
+                            Consumer<SearchResult> consumer) {
+        SemanticSearchResponse cached = resultCache.get(resultCache.key(query, limit, threshold, filter, mode));
+        if (cached != null) {
+            log.info("Result cache hit for query: '{}'", query);
+            cached.getResults().forEach(consumer);
+            return cached.getResults().size();
+        }
 
-        // Step 4: Filter by threshold
-        // Only include products with similarity > threshold
+        List<VectorMatch> matches = rank(query, limit, threshold, filter, mode, resultCache.currentVersion());
 
-        // Step 5: Sort by similarity (descending)
-        // Top results first
+        int emitted = 0;
+        for (int from = 0; from < matches.size(); from += streamPageSize) {
+            List<VectorMatch> page = matches.subList(from, Math.min(from + streamPageSize, matches.size()));
+            for (SearchResult result : toSearchResults(page)) {
+                result.setRank(++emitted);
+                consumer.accept(result);
+            }
+        }
+        return emitted;
+    }
 
-        // Step 6: Limit results
-        // Take only top N results
+    /**
+     * Search many queries at once.
+     *
+     * All queries are embedded with one generateEmbeddings call and ranked
+     * with one VectorSearchBackend.findNearestBatch call; the matched
+     * products of the whole batch are loaded with a single query. Batches
+     * bypass the result caches so audits always see current scores.
+     *
+     * @param queries Query texts
+     * @param limit Maximum number of results per query
+     * @param threshold Minimum similarity threshold
+     * @param filter Attribute filters applied to every query, may be null
+     * @param mode Semantic, hybrid or multi-vector ranking
+     * @return One search response per query, in query order
+     */
+    public List<SemanticSearchResponse> searchBatch(List<String> queries, int limit, double threshold,
+                                                    SearchFilter filter, SearchMode mode) {
+        long startTime = System.currentTimeMillis();
+
+        log.info("Performing {} batch search for {} queries (limit={}, threshold={}, filter={}, backend={})",
+                mode, queries.size(), limit, threshold, filter, searchBackend.getBackendName());
+
+        List<List<VectorMatch>> rankings = new ArrayList<>(Collections.nCopies(queries.size(), List.of()));
+        BitSet allowedIds = filterIndex.resolve(filter);
+
+        if (allowedIds == null || !allowedIds.isEmpty()) {
+            // Step 1: Resolve exact identifiers (hybrid), embed everything else in one call
+            List<Integer> embedded = new ArrayList<>();
+            for (int i = 0; i < queries.size(); i++) {
+                Optional<Long> exact = mode == SearchMode.HYBRID
+                        ? lexicalIndex.findByIdentifier(queries.get(i))
+                                .filter(id -> ProductFilterIndex.accepts(allowedIds, id))
+                        : Optional.empty();
+                if (exact.isPresent()) {
+                    rankings.set(i, List.of(new VectorMatch(exact.get(), 1.0)));
+                } else {
+                    embedded.add(i);
+                }
+            }
 
-        // Step 7: Create SearchResult objects
-        // Wrap each product with its similarity score and rank
+            if (!embedded.isEmpty()) {
+                List<List<Float>> embeddings = embeddingProvider.generateEmbeddings(
+                        embedded.stream().map(queries::get).collect(Collectors.toList()));
+                float[][] queryEmbeddings = new float[embedded.size()][];
+                for (int j = 0; j < queryEmbeddings.length; j++) {
+                    queryEmbeddings[j] = toArray(embeddings.get(j));
+                    if (normalizeEmbeddings) {
+                        queryEmbeddings[j] = SimilarityKernels.normalize(queryEmbeddings[j]);
+                    }
+                }
+
+                // Step 2: Rank all queries in one backend pass
+                int candidates = mode == SearchMode.HYBRID ? Math.max(limit, hybridCandidates) : limit;
+                List<List<VectorMatch>> vectorMatches = mode == SearchMode.MULTI_VECTOR && !multiVectorIndex.isEmpty()
+                        ? multiVectorIndex.findNearestBatch(queryEmbeddings, candidates, threshold, allowedIds)
+                        : searchBackend.findNearestBatch(queryEmbeddings, candidates, threshold, allowedIds);
+                for (int j = 0; j < queryEmbeddings.length; j++) {
+                    int i = embedded.get(j);
+                    List<VectorMatch> matches = vectorMatches.get(j);
+                    if (mode == SearchMode.HYBRID) {
+                        matches = fuse(matches, lexicalIndex.search(queries.get(i), candidates, allowedIds), limit);
+                    }
+                    rankings.set(i, matches);
+                }
+            }
+        }
+
+        // Step 3: Load the products of every ranking with one query
+        Map<Long, ProductSummary> productsById = loadProducts(rankings.stream()
+                .flatMap(List::stream)
+                .map(VectorMatch::getProductId)
+                .distinct()
+                .collect(Collectors.toList()));
 
-        // Step 8: Build response
         long executionTime = System.currentTimeMillis() - startTime;
+        List<SemanticSearchResponse> responses = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            List<SearchResult> results = toSearchResults(rankings.get(i), productsById);
+            responses.add(new SemanticSearchResponse(queries.get(i), results, executionTime, results.size()));
+        }
+
+        log.info("Batch search of {} queries completed in {}ms", queries.size(), executionTime);
+        return responses;
+    }
+
+    /**
+     * Batch search that hands each response to a consumer as soon as its
+     * chunk of search.stream.batch-chunk queries has been ranked.
+     *
+     * @param consumer Receives (query index, response) in query order
+     */
+    public void searchBatchStream(List<String> queries, int limit, double threshold, SearchFilter filter,
+                                  SearchMode mode, BiConsumer<Integer, SemanticSearchResponse> consumer) {
+        for (int from = 0; from < queries.size(); from += streamBatchChunk) {
+            List<String> chunk = queries.subList(from, Math.min(from + streamBatchChunk, queries.size()));
+            List<SemanticSearchResponse> responses = searchBatch(chunk, limit, threshold, filter, mode);
+            for (int i = 0; i < responses.size(); i++) {
+                consumer.accept(from + i, responses.get(i));
+            }
+        }
+    }
+
+    /**
+     * Cached response for a request, without computing anything on a miss.
+     * Used for degraded responses while search is overloaded.
+     *
+     * @return Cached response for the current catalog version, if any
+     */
+    public Optional<SemanticSearchResponse> findCached(String query, int limit, double threshold,
+                                                       SearchFilter filter, SearchMode mode) {
+        long startTime = System.currentTimeMillis();
+        SemanticSearchResponse cached = resultCache.get(resultCache.key(query, limit, threshold, filter, mode));
+        return Optional.ofNullable(cached).map(response -> buildResponse(query, response.getResults(), startTime));
+    }
+
+    /**
+     * Keyword-only search: exact identifier lookup, then the BM25 ranking.
+     *
+     * No embedding call and no vector scan, so this stays cheap while the
+     * embedding provider or the backend is overloaded. Results carry
+     * similarity 0 (no vector score) and are not cached.
+     *
+     * @param query Query text
+     * @param limit Maximum number of results
+     * @param filter Attribute filters, may be null
+     * @return Search response with keyword-ranked results
+     */
+    public SemanticSearchResponse searchLexical(String query, int limit, SearchFilter filter) {
+        long startTime = System.currentTimeMillis();
+        log.info("Performing lexical-only search for query: '{}' (limit={}, filter={})", query, limit, filter);
+
+        BitSet allowedIds = filterIndex.resolve(filter);
+        if (allowedIds != null && allowedIds.isEmpty()) {
+            return buildResponse(query, List.of(), startTime);
+        }
+        Optional<Long> exact = lexicalIndex.findByIdentifier(query)
+                .filter(id -> ProductFilterIndex.accepts(allowedIds, id));
+        List<VectorMatch> matches = exact.isPresent()
+                ? List.of(new VectorMatch(exact.get(), 1.0))
+                : lexicalIndex.search(query, limit, allowedIds).stream()
+                        .map(match -> new VectorMatch(match.getProductId(), 0.0))
+                        .collect(Collectors.toList());
+        return buildResponse(query, toSearchResults(matches), startTime);
+    }
+
+    /**
+     * Products most similar to a product, served from the precomputed
+     * k-NN graph (see SimilarProductGraph); no embedding call or scan.
+     *
+     * @param productId Product id
+     * @param limit Maximum number of results
+     * @return Similar products, or empty if the product has no neighbours computed yet
+     */
+    public Optional<List<SearchResult>> findSimilar(Long productId, int limit) {
+        return similarProductGraph.getNeighbours(productId, limit).map(this::toSearchResults);
+    }
+
+    /**
+     * Rank, load and cache the response of one search request.
+     */
+    private SemanticSearchResponse compute(String query, int limit, double threshold, SearchFilter filter,
+                                           SearchMode mode, SearchResultCache.Key cacheKey, long catalogVersion,
+                                           long startTime) {
+        List<VectorMatch> matches = rank(query, limit, threshold, filter, mode, catalogVersion);
+
+        // Step 3: Load matched products and wrap them with score and rank
+        SemanticSearchResponse response = buildResponse(query, toSearchResults(matches), startTime);
+        // Cached before the in-flight entry is released, so later identical requests hit the cache
+        resultCache.put(cacheKey, catalogVersion, response);
+        return response;
+    }
+
+    /**
+     * Ranked product ids for a query, best first.
+     */
+    private List<VectorMatch> rank(String query, int limit, double threshold, SearchFilter filter, SearchMode mode,
+                                   long catalogVersion) {
+        log.info("Performing {} search for query: '{}' (limit={}, threshold={}, filter={}, backend={})",
+                mode, query, limit, threshold, filter, searchBackend.getBackendName());
+
+        // Step 0: Intersect attribute bitmaps; nothing to rank if no product matches
+        BitSet allowedIds = filterIndex.resolve(filter);
+        if (allowedIds != null && allowedIds.isEmpty()) {
+            return List.of();
+        }
+
+        if (mode == SearchMode.HYBRID) {
+            // Exact identifier: a hash probe, no embedding call
+            Optional<Long> exact = lexicalIndex.findByIdentifier(query)
+                    .filter(id -> ProductFilterIndex.accepts(allowedIds, id));
+            if (exact.isPresent()) {
+                log.info("Query '{}' resolved to product {} by identifier", query, exact.get());
+                return List.of(new VectorMatch(exact.get(), 1.0));
+            }
+        }
+
+        // Step 1: Generate embedding for the query
+        float[] queryEmbedding = toArray(embeddingProvider.generateEmbedding(query));
+        if (normalizeEmbeddings) {
+            // Once per request, so backends can score with a plain dot product
+            queryEmbedding = SimilarityKernels.normalize(queryEmbedding);
+        }
+
+        // Step 2: Nearest-neighbour search (sorted, filtered and limited by the backend)
+        if (mode == SearchMode.MULTI_VECTOR && !multiVectorIndex.isEmpty()) {
+            // Chunk rankings differ from product-embedding rankings, so the similarity cache is bypassed
+            return multiVectorIndex.findNearest(queryEmbedding, limit, threshold, allowedIds);
+        }
+        if (mode == SearchMode.HYBRID) {
+            int candidates = Math.max(limit, hybridCandidates);
+            List<VectorMatch> vectorMatches =
+                    findNearest(queryEmbedding, candidates, threshold, filter, allowedIds, catalogVersion);
+            List<VectorMatch> lexicalMatches = lexicalIndex.search(query, candidates, allowedIds);
+            return fuse(vectorMatches, lexicalMatches, limit);
+        }
+        return findNearest(queryEmbedding, limit, threshold, filter, allowedIds, catalogVersion);
+    }
+
+    /**
+     * Backend nearest-neighbour search, reusing the ranking of a cached
+     * query embedding within the similarity radius when there is one.
+     */
+    private List<VectorMatch> findNearest(float[] queryEmbedding, int count, double threshold, SearchFilter filter,
+                                          BitSet allowedIds, long catalogVersion) {
+        List<VectorMatch> similar = resultCache.getSimilar(queryEmbedding, count, threshold, filter);
+        if (similar != null) {
+            log.info("Reusing ranking of a similar cached query, catalog scan skipped");
+            return similar;
+        }
+        List<VectorMatch> matches = searchBackend.findNearest(queryEmbedding, count, threshold, allowedIds);
+        resultCache.putSimilar(queryEmbedding, count, threshold, filter, catalogVersion, matches);
+        return matches;
+    }
+
+    private SemanticSearchResponse buildResponse(String query, List<SearchResult> results, long startTime) {
+        long executionTime = System.currentTimeMillis() - startTime;
+
+        log.info("Search completed in {}ms, found {} results", executionTime, results.size());
 
-        // Return empty response for now
         SemanticSearchResponse response = new SemanticSearchResponse();
         response.setQuery(query);
-        response.setResults(List.of());
+        response.setResults(results);
         response.setExecutionTimeMs(executionTime);
-        response.setTotalResults(0);
+        response.setTotalResults(results.size());
 
         return response;
     }
 
     /**
-     * Calculate cosine similarity between two embeddings.
+     * Reciprocal rank fusion of the vector and lexical rankings.
      *
-     * @param a First embedding
-     * @param b Second embedding
-     * @return Similarity score (0-1)
+     * @return Top fused matches, carrying the vector similarity (0 for keyword-only matches)
      */
-    private double cosineSimilarity(List<Float> a, List<Float> b) {
-        // TODO: Implement cosine similarity calculation
+    private List<VectorMatch> fuse(List<VectorMatch> vectorMatches, List<VectorMatch> lexicalMatches, int limit) {
+        Map<Long, Double> fused = new HashMap<>();
+        Map<Long, Double> similarities = new HashMap<>();
+        for (int rank = 0; rank < vectorMatches.size(); rank++) {
+            VectorMatch match = vectorMatches.get(rank);
+            fused.merge(match.getProductId(), 1.0 / (rrfK + rank + 1), Double::sum);
+            similarities.put(match.getProductId(), match.getSimilarity());
+        }
+        for (int rank = 0; rank < lexicalMatches.size(); rank++) {
+            fused.merge(lexicalMatches.get(rank).getProductId(), 1.0 / (rrfK + rank + 1), Double::sum);
+        }
 
-        // Formula: similarity = (A · B) / (||A|| × ||B||)
+        return fused.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> new VectorMatch(entry.getKey(), similarities.getOrDefault(entry.getKey(), 0.0)))
+                .collect(Collectors.toList());
+    }
 
-        // Step 1: Calculate dot product (A · B)
-        // Sum of element-wise multiplication
+    /**
+     * Load the matched products with one query and keep the backend's rank order.
+     *
+     * @param matches Ranked matches
+     * @return Search results with similarity score and rank
+     */
+    private List<SearchResult> toSearchResults(List<VectorMatch> matches) {
+        List<Long> ids = matches.stream()
+                .map(VectorMatch::getProductId)
+                .collect(Collectors.toList());
+        return toSearchResults(matches, loadProducts(ids));
+    }
 
-        // Step 2: Calculate magnitude of A (||A||)
-        // Square root of sum of squares
+    /**
+     * Compact search projections of the given products, one query for all ids.
+     */
+    private Map<Long, ProductSummary> loadProducts(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return productRepository.findListingsByIds(ids).stream()
+                .collect(Collectors.toMap(ProductListing::getId, this::toSummary, (first, second) -> first));
+    }
 
-        // Step 3: Calculate magnitude of B (||B||)
-        // Square root of sum of squares
+    private ProductSummary toSummary(ProductListing listing) {
+        return new ProductSummary(listing.getId(), listing.getCode(), listing.getName(), listing.getSummary(),
+                listing.getPrice(), listing.getCurrency(), listing.getBrand(), listing.getAverageRating(),
+                listing.getReviewCount(), listing.getImageUrl());
+    }
+
+    /**
+     * Wrap ranked matches with their loaded products, skipping products that no longer exist.
+     */
+    private List<SearchResult> toSearchResults(List<VectorMatch> matches, Map<Long, ProductSummary> productsById) {
+        List<SearchResult> results = new ArrayList<>(matches.size());
+        for (VectorMatch match : matches) {
+            ProductSummary product = productsById.get(match.getProductId());
+            if (product != null) {
+                results.add(new SearchResult(product, match.getSimilarity(), results.size() + 1));
+            }
+        }
+        return results;
+    }
 
-        // Step 4: Return similarity
-        // dot product / (magnitude A × magnitude B)
+    /**
+     * Convert a provider embedding to a primitive array.
+     *
+     * @param embedding Embedding as returned by the provider
+     * @return Float array
+     */
+    private float[] toArray(List<Float> embedding) {
+        float[] array = new float[embedding.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = embedding.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Search response and whether the search was computed for this call.
+     */
+    @lombok.Value
+    public static class Execution {
+        SemanticSearchResponse response;
+        boolean computed;
+    }
 
-        return 0.0; // Replace with actual calculation
+    @lombok.Value
+    private static class InFlightKey {
+        SearchResultCache.Key request;
+        long catalogVersion;
     }
 }
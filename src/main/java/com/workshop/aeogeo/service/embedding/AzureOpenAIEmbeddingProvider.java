@@ -101,4 +101,9 @@ public class AzureOpenAIEmbeddingProvider implements EmbeddingProvider {
     public String getProviderName() {
         return "azure";
     }
+
+    @Override
+    public String getModelName() {
+        return deploymentName;
+    }
 }
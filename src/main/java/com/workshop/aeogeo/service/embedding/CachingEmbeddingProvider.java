@@ -0,0 +1,92 @@
+package com.workshop.aeogeo.service.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EmbeddingProvider decorator that answers repeated texts from EmbeddingCache.
+ *
+ * Batch calls look up every text first and send only the misses to the
+ * delegate, in a single batch.
+ */
+public class CachingEmbeddingProvider implements EmbeddingProvider {
+
+    private final EmbeddingProvider delegate;
+    private final EmbeddingCache cache;
+
+    public CachingEmbeddingProvider(EmbeddingProvider delegate, EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public List<Float> generateEmbedding(String text) {
+        float[] cached = cache.get(getProviderName(), getModelName(), text);
+        if (cached != null) {
+            return toList(cached);
+        }
+        List<Float> embedding = delegate.generateEmbedding(text);
+        cache.put(getProviderName(), getModelName(), text, toArray(embedding));
+        return embedding;
+    }
+
+    @Override
+    public List<List<Float>> generateEmbeddings(List<String> texts) {
+        List<List<Float>> results = new ArrayList<>(texts.size());
+        List<String> misses = new ArrayList<>();
+        List<Integer> missPositions = new ArrayList<>();
+
+        for (int i = 0; i < texts.size(); i++) {
+            float[] cached = cache.get(getProviderName(), getModelName(), texts.get(i));
+            results.add(cached != null ? toList(cached) : null);
+            if (cached == null) {
+                misses.add(texts.get(i));
+                missPositions.add(i);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            List<List<Float>> generated = delegate.generateEmbeddings(misses);
+            for (int i = 0; i < generated.size(); i++) {
+                List<Float> embedding = generated.get(i);
+                results.set(missPositions.get(i), embedding);
+                cache.put(getProviderName(), getModelName(), misses.get(i), toArray(embedding));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public int getEmbeddingDimension() {
+        return delegate.getEmbeddingDimension();
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    private static List<Float> toList(float[] embedding) {
+        List<Float> list = new ArrayList<>(embedding.length);
+        for (float value : embedding) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static float[] toArray(List<Float> embedding) {
+        if (embedding == null) {
+            return null;
+        }
+        float[] array = new float[embedding.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = embedding.get(i);
+        }
+        return array;
+    }
+}
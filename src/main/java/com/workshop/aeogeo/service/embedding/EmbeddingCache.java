@@ -0,0 +1,136 @@
+package com.workshop.aeogeo.service.embedding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.workshop.aeogeo.dto.EmbeddingCacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded query-embedding cache shared by every EmbeddingProvider.
+ *
+ * Backed by Caffeine, whose W-TinyLFU policy admits a new entry only if
+ * it is requested more often than the entry it would evict, so a burst
+ * of one-off texts (e.g. product descriptions during a re-embed) cannot
+ * flush the queries that answer engines repeat. The bound is in bytes
+ * (embedding floats plus key text), not entries, so switching to a
+ * 3072-dimension model does not silently double memory use.
+ *
+ * Keys combine provider, model and normalized text (Unicode NFKC,
+ * lower-cased, whitespace collapsed), so "Waterproof  Jacket" and
+ * "waterproof jacket" share an entry while embeddings from another
+ * provider or model are never served.
+ *
+ * Providers are wrapped automatically by EmbeddingCacheBeanPostProcessor.
+ *
+ * Configuration (embedding.cache.*):
+ * - enabled: wrap providers with the cache (default true)
+ * - max-bytes: total weight bound (default 64 MB, ~10k 1536-dim embeddings)
+ */
+@Component
+@Slf4j
+public class EmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Rough per-entry overhead: key object, strings, array header, cache node */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    @Value("${embedding.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${embedding.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    private Cache<Key, float[]> cache;
+
+    @PostConstruct
+    public void initialize() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, float[] embedding) -> weigh(key, embedding))
+                .recordStats()
+                .build();
+        log.info("Query-embedding cache {} (max {} KB)", enabled ? "enabled" : "disabled", maxBytes / 1024);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cached embedding, or null on a miss. Callers must not modify the array.
+     */
+    public float[] get(String provider, String model, String text) {
+        return cache.getIfPresent(new Key(provider, model, normalize(text)));
+    }
+
+    /**
+     * Cache an embedding returned by a provider.
+     */
+    public void put(String provider, String model, String text, float[] embedding) {
+        if (embedding != null && embedding.length > 0) {
+            cache.put(new Key(provider, model, normalize(text)), embedding);
+        }
+    }
+
+    /**
+     * Drop every entry (e.g. after changing provider configuration at runtime).
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Hit/miss/eviction counters since startup plus current size.
+     */
+    public EmbeddingCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        EmbeddingCacheStats result = new EmbeddingCacheStats();
+        result.setEnabled(enabled);
+        result.setEntries(cache.estimatedSize());
+        result.setWeightedSizeBytes(cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        result.setMaxBytes(maxBytes);
+        result.setRequests(stats.requestCount());
+        result.setHits(stats.hitCount());
+        result.setMisses(stats.missCount());
+        result.setHitRate(stats.hitRate());
+        result.setEvictions(stats.evictionCount());
+        result.setEvictedBytes(stats.evictionWeight());
+        return result;
+    }
+
+    /**
+     * Query text normalization shared by the embedding and result caches.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static int weigh(Key key, float[] embedding) {
+        long bytes = ENTRY_OVERHEAD_BYTES
+                + 2L * (key.provider.length() + key.model.length() + key.text.length())
+                + (long) Float.BYTES * embedding.length;
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    @lombok.Value
+    private static class Key {
+        String provider;
+        String model;
+        String text;
+    }
+}
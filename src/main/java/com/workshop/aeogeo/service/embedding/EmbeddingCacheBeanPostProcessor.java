@@ -0,0 +1,45 @@
+package com.workshop.aeogeo.service.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puts EmbeddingCache in front of every embedding provider bean.
+ *
+ * Wraps implementations of both EmbeddingProvider interfaces
+ * (service.embedding and provider), so whichever provider the active
+ * profile/property selects is cached without changes to the provider or
+ * its callers. Callers must inject the interface, not the concrete class.
+ */
+@Component
+@Slf4j
+public class EmbeddingCacheBeanPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<EmbeddingCache> cacheProvider;
+
+    public EmbeddingCacheBeanPostProcessor(ObjectProvider<EmbeddingCache> cacheProvider) {
+        // Resolved lazily: post-processors are created before regular beans
+        this.cacheProvider = cacheProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof EmbeddingProvider provider && !(bean instanceof CachingEmbeddingProvider)) {
+            EmbeddingCache cache = cacheProvider.getObject();
+            if (cache.isEnabled()) {
+                log.info("Caching embeddings of provider bean '{}'", beanName);
+                return new CachingEmbeddingProvider(provider, cache);
+            }
+        } else if (bean instanceof com.workshop.aeogeo.provider.EmbeddingProvider provider
+                && !(bean instanceof com.workshop.aeogeo.provider.CachingEmbeddingProvider)) {
+            EmbeddingCache cache = cacheProvider.getObject();
+            if (cache.isEnabled()) {
+                log.info("Caching embeddings of provider bean '{}'", beanName);
+                return new com.workshop.aeogeo.provider.CachingEmbeddingProvider(provider, cache);
+            }
+        }
+        return bean;
+    }
+}
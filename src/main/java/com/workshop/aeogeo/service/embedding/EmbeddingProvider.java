@@ -46,4 +46,13 @@ public interface EmbeddingProvider {
      * @return Provider name (e.g., "precomputed", "azure", "openai")
      */
     String getProviderName();
+
+    /**
+     * Get the model producing the embeddings (part of the embedding cache key).
+     *
+     * @return Model or deployment name; the provider name if there is only one model
+     */
+    default String getModelName() {
+        return getProviderName();
+    }
 }
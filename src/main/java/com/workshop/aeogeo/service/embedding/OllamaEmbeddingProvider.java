@@ -118,4 +118,9 @@ public class OllamaEmbeddingProvider implements EmbeddingProvider {
     public String getProviderName() {
         return "ollama";
     }
+
+    @Override
+    public String getModelName() {
+        return model;
+    }
 }
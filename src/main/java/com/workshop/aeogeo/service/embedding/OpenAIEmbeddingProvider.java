@@ -96,4 +96,9 @@ public class OpenAIEmbeddingProvider implements EmbeddingProvider {
     public String getProviderName() {
         return "openai";
     }
+
+    @Override
+    public String getModelName() {
+        return model;
+    }
 }
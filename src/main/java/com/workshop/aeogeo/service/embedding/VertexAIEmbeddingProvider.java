@@ -87,6 +87,11 @@ public class VertexAIEmbeddingProvider implements EmbeddingProvider {
         return "vertexai-stub";
     }
 
+    @Override
+    public String getModelName() {
+        return model;
+    }
+
     /**
      * Generate a deterministic mock embedding for workshop exercises.
      * Participants will replace this with real Vertex AI calls.
@@ -0,0 +1,105 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Binary-Quantized Prefilter Search Backend.
+ *
+ * Two-phase search:
+ * 1. Hamming scan over sign-bit codes (see BinaryQuantizer), held in one
+ *    contiguous long[] so a full-catalog prefilter streams through cache.
+ * 2. Exact cosine re-ranking of the closest codes from the memory-mapped
+ *    float32 snapshot (EmbeddingSnapshotStore), then threshold and limit.
+ *
+ * Sign codes are coarse, so the shortlist should be generous
+ * (search.binary.rerank-candidates, default 500).
+ *
+ * Enable with: search.backend=binary
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "binary")
+@Slf4j
+public class BinaryPrefilterSearchBackend implements VectorSearchBackend {
+
+    @Autowired
+    private EmbeddingSnapshotStore snapshotStore;
+
+    @Autowired
+    private ParallelTopKScanner scanner;
+
+    @Value("${search.binary.rerank-candidates:500}")
+    private int rerankCandidates;
+
+    private volatile long[] codes;
+    private volatile int words;
+    private volatile int rows;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() throws IOException {
+        long startTime = System.currentTimeMillis();
+        MappedEmbeddingMatrix matrix = snapshotStore.open();
+
+        int w = BinaryQuantizer.words(matrix.getDimension());
+        long[] packed = new long[matrix.getRows() * w];
+        for (int row = 0; row < matrix.getRows(); row++) {
+            BinaryQuantizer.encode(matrix.row(row), packed, row * w);
+        }
+        words = w;
+        rows = matrix.getRows();
+        codes = packed;
+
+        log.info("Binary prefilter built for {} embeddings ({} KB codes) in {}ms",
+                matrix.getRows(), (long) packed.length * Long.BYTES / 1024,
+                System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        long[] current = codes;
+        MappedEmbeddingMatrix matrix = snapshotStore.getMatrix();
+        TopKCollector topK = new TopKCollector(limit, threshold);
+
+        if (current != null && matrix.getDimension() == queryEmbedding.length) {
+            // Phase 1: Hamming prefilter, rows as ids, lower distance = higher score
+            long[] queryCode = new long[words];
+            BinaryQuantizer.encode(queryEmbedding, queryCode, 0);
+
+            int w = words;
+            TopKCollector shortlist = scanner.scan(rows, Math.max(rerankCandidates, limit),
+                    Float.NEGATIVE_INFINITY, (from, to, collector) -> {
+                for (int row = from; row < to; row++) {
+                    if (ProductFilterIndex.accepts(allowedIds, matrix.productId(row))
+                            && !snapshotStore.isShadowed(row)) {
+                        collector.offer(row, -BinaryQuantizer.hamming(queryCode, current, row * w));
+                    }
+                }
+            });
+
+            // Phase 2: exact cosine re-ranking
+            snapshotStore.scoreRows(queryEmbedding, shortlist.ids(), topK);
+        }
+        snapshotStore.scoreDelta(queryEmbedding, topK, allowedIds);
+
+        return topK.toMatches();
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        snapshotStore.put(productId, embedding);
+    }
+
+    @Override
+    public String getBackendName() {
+        return "binary";
+    }
+}
@@ -0,0 +1,56 @@
+package com.workshop.aeogeo.service.search;
+
+/**
+ * 1-bit-per-dimension sign quantization.
+ *
+ * Bit d of a code is set when component d is positive, so a 1536-dim
+ * embedding packs into 24 longs (192 bytes). The Hamming distance between
+ * two codes (XOR + popcount, a single instruction per 64 dimensions)
+ * approximates the angle between the vectors, which makes it a cheap
+ * prefilter: a full-catalog scan touches 1/32 of the float32 bytes.
+ */
+public final class BinaryQuantizer {
+
+    private BinaryQuantizer() {
+    }
+
+    /**
+     * Number of longs needed for a vector of the given dimension.
+     */
+    public static int words(int dimension) {
+        return (dimension + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Pack the sign bits of a vector.
+     *
+     * @param vector Input vector
+     * @param codes Output array
+     * @param offset Position of the first word in the output array
+     */
+    public static void encode(float[] vector, long[] codes, int offset) {
+        int words = words(vector.length);
+        for (int w = 0; w < words; w++) {
+            long word = 0L;
+            int base = w * Long.SIZE;
+            int end = Math.min(base + Long.SIZE, vector.length);
+            for (int d = base; d < end; d++) {
+                if (vector[d] > 0f) {
+                    word |= 1L << (d - base);
+                }
+            }
+            codes[offset + w] = word;
+        }
+    }
+
+    /**
+     * Hamming distance between a query code and a stored code.
+     */
+    public static int hamming(long[] query, long[] codes, int offset) {
+        int distance = 0;
+        for (int w = 0; w < query.length; w++) {
+            distance += Long.bitCount(query[w] ^ codes[offset + w]);
+        }
+        return distance;
+    }
+}
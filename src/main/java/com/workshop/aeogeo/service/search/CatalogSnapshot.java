@@ -0,0 +1,90 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lazily built, immutable view of the catalog that is rebuilt when the
+ * CatalogVersion moves.
+ *
+ * Built on first get(); afterwards the catalog version is compared at
+ * most once per refresh interval, which also bounds how often a burst of
+ * writes can trigger a rebuild. While one caller rebuilds, concurrent
+ * callers keep reading the previous value instead of blocking.
+ *
+ * @param <T> Snapshot type; must not be mutated once built
+ */
+@Slf4j
+final class CatalogSnapshot<T> {
+
+    private final String name;
+    private final Supplier<T> builder;
+    private final CatalogVersion catalogVersion;
+    private final long refreshIntervalMs;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile T value;
+    private volatile long builtVersion;
+    private volatile long lastCheckMillis;
+
+    /**
+     * @param name Name used in log messages
+     * @param builder Builds a fresh snapshot from the database
+     * @param catalogVersion Catalog change counter
+     * @param refreshIntervalMs Minimum time between version checks
+     */
+    CatalogSnapshot(String name, Supplier<T> builder, CatalogVersion catalogVersion, long refreshIntervalMs) {
+        this.name = name;
+        this.builder = builder;
+        this.catalogVersion = catalogVersion;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * Current snapshot, building or refreshing it if due.
+     */
+    T get() {
+        T current = value;
+        if (current != null && System.currentTimeMillis() - lastCheckMillis < refreshIntervalMs) {
+            return current;
+        }
+
+        if (current == null) {
+            lock.lock();
+        } else if (!lock.tryLock()) {
+            return current;
+        }
+        try {
+            if (value == null) {
+                rebuild();
+            } else if (System.currentTimeMillis() - lastCheckMillis >= refreshIntervalMs) {
+                lastCheckMillis = System.currentTimeMillis();
+                if (catalogVersion.current() != builtVersion) {
+                    log.info("Catalog changed since {} was built, rebuilding", name);
+                    rebuild();
+                }
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild now, regardless of the catalog version.
+     */
+    void rebuild() {
+        lock.lock();
+        try {
+            // Read the version first so changes made during the build trigger another rebuild
+            long version = catalogVersion.current();
+            value = builder.get();
+            builtVersion = version;
+            lastCheckMillis = System.currentTimeMillis();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.model.CatalogChangedEvent;
+import com.workshop.aeogeo.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic catalog version for invalidating search caches and indexes.
+ *
+ * Bumped in two ways:
+ * - by every product, price row or classification attribute write made
+ *   through JPA on this instance (CatalogChangedEvent), once its
+ *   transaction has committed; bumping before the commit would let a
+ *   concurrent search cache results of the old data under the new version
+ *   (writes outside a transaction bump immediately, rolled-back ones never)
+ * - by polling the latest ProductModel.modifiedTime (maintained in
+ *   onUpdate) at most every search.catalog.poll-interval-ms, which
+ *   catches writes from other instances or plain SQL
+ *
+ * Consumers remember the version their data was built from and treat it
+ * as stale once current() moves; the absolute value has no meaning.
+ */
+@Component
+@Slf4j
+public class CatalogVersion {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${search.catalog.poll-interval-ms:30000}")
+    private long pollIntervalMs;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private volatile LocalDateTime lastSeenModified;
+    private volatile long lastPollMillis;
+
+    /**
+     * Current version, polling the database first if due.
+     */
+    public long current() {
+        if (System.currentTimeMillis() - lastPollMillis >= pollIntervalMs && polling.compareAndSet(false, true)) {
+            try {
+                poll();
+            } finally {
+                polling.set(false);
+            }
+        }
+        return version.get();
+    }
+
+    /**
+     * Record a catalog write.
+     */
+    public void increment() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Bump the version after a catalog write has been committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        increment();
+    }
+
+    private void poll() {
+        lastPollMillis = System.currentTimeMillis();
+        try {
+            LocalDateTime latest = productRepository.findLatestModifiedTime().orElse(null);
+            if (latest != null && lastSeenModified != null && latest.isAfter(lastSeenModified)) {
+                log.debug("Catalog modified at {}, bumping version", latest);
+                version.incrementAndGet();
+            }
+            if (latest != null) {
+                lastSeenModified = latest;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to poll catalog modification time: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.workshop.aeogeo.service.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes an embedding matrix snapshot (format: see MappedEmbeddingMatrix).
+ *
+ * Rows are streamed to a temporary file as they arrive, so the whole
+ * catalog is never held on the heap; the header is written last and the
+ * file is moved into place atomically, so readers never map a partial
+ * snapshot.
+ *
+ * Usage:
+ * <pre>
+ * try (EmbeddingMatrixWriter writer = new EmbeddingMatrixWriter(path, normalized)) {
+ *     loader.forEachEmbedding(writer::append);
+ *     writer.commit();
+ * }
+ * </pre>
+ */
+public class EmbeddingMatrixWriter implements AutoCloseable {
+
+    private final Path target;
+    private final Path temp;
+    private final boolean normalized;
+    private final FileChannel channel;
+
+    private long[] productIds = new long[1024];
+    private int rows;
+    private int dimension = -1;
+    private ByteBuffer rowBuffer;
+    private boolean committed;
+
+    public EmbeddingMatrixWriter(Path target, boolean normalized) throws IOException {
+        this.target = target.toAbsolutePath();
+        this.normalized = normalized;
+        Files.createDirectories(this.target.getParent());
+        this.temp = Files.createTempFile(this.target.getParent(), this.target.getFileName().toString(), ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(MappedEmbeddingMatrix.HEADER_BYTES);
+    }
+
+    /**
+     * Append one product row.
+     *
+     * @return false if the vector's dimension does not match earlier rows
+     */
+    public boolean append(Long productId, float[] vector) {
+        if (dimension < 0) {
+            dimension = vector.length;
+            rowBuffer = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        } else if (vector.length != dimension) {
+            return false;
+        }
+
+        rowBuffer.clear();
+        rowBuffer.asFloatBuffer().put(vector);
+        rowBuffer.limit(rowBuffer.capacity());
+        try {
+            while (rowBuffer.hasRemaining()) {
+                channel.write(rowBuffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (rows == productIds.length) {
+            productIds = Arrays.copyOf(productIds, rows * 2);
+        }
+        productIds[rows++] = productId;
+        return true;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Write the id table and header, then move the snapshot into place.
+     */
+    public void commit() throws IOException {
+        ByteBuffer ids = ByteBuffer.allocate(rows * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ids.asLongBuffer().put(productIds, 0, rows);
+        while (ids.hasRemaining()) {
+            channel.write(ids);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(MappedEmbeddingMatrix.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MappedEmbeddingMatrix.MAGIC)
+                .putInt(MappedEmbeddingMatrix.VERSION)
+                .putInt(rows)
+                .putInt(Math.max(dimension, 0))
+                .putInt(normalized ? 1 : 0)
+                .putInt(0)
+                .putLong(System.currentTimeMillis());
+        header.clear();
+        channel.write(header, 0);
+        channel.force(true);
+        channel.close();
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+        if (!committed) {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
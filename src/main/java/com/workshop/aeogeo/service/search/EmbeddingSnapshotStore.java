@@ -0,0 +1,196 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Full-precision product embeddings for in-memory backends that want
+ * them off-heap: a memory-mapped matrix snapshot plus an on-heap delta.
+ *
+ * Snapshot lifecycle:
+ * - open() maps the snapshot if it is newer than the latest product
+ *   modification and has one row per embedded product; otherwise it is
+ *   rewritten from pgvector first.
+ * - Embeddings written while running go to the delta, which shadows the
+ *   snapshot rows of the same products until the next rebuild.
+ *
+ * Nothing is loaded until a backend calls open(), so the store costs
+ * nothing when the pgvector or HNSW backend is active.
+ */
+@Component
+@Slf4j
+public class EmbeddingSnapshotStore {
+
+    @Autowired
+    private ProductEmbeddingLoader embeddingLoader;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${search.mmap.file:data/embeddings.matrix}")
+    private String snapshotFile;
+
+    @Value("${embedding.normalize:true}")
+    private boolean normalized;
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private final Map<Long, float[]> delta = new ConcurrentHashMap<>();
+    private volatile MappedEmbeddingMatrix matrix;
+
+    /**
+     * Map the current snapshot, rebuilding it from pgvector if stale.
+     *
+     * @return The mapped matrix
+     */
+    public synchronized MappedEmbeddingMatrix open() throws IOException {
+        if (matrix != null) {
+            return matrix;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Path path = Paths.get(snapshotFile);
+
+        if (isCurrent(path)) {
+            matrix = MappedEmbeddingMatrix.open(path);
+            log.info("Mapped embedding snapshot {} ({} rows x {} dims) in {}ms",
+                    path, matrix.getRows(), matrix.getDimension(), System.currentTimeMillis() - startTime);
+        } else {
+            rebuild();
+            log.info("Rebuilt embedding snapshot {} ({} rows x {} dims) in {}ms",
+                    path, matrix.getRows(), matrix.getDimension(), System.currentTimeMillis() - startTime);
+        }
+        return matrix;
+    }
+
+    /**
+     * Rewrite the snapshot from pgvector, map the new file and clear the delta.
+     */
+    public synchronized MappedEmbeddingMatrix rebuild() throws IOException {
+        Path path = Paths.get(snapshotFile);
+        try (EmbeddingMatrixWriter writer = new EmbeddingMatrixWriter(path, normalized)) {
+            embeddingLoader.forEachEmbedding((productId, embedding) -> {
+                if (!writer.append(productId, embedding)) {
+                    log.warn("Skipping product {}: embedding dimension {} differs from snapshot",
+                            productId, embedding.length);
+                }
+            });
+            writer.commit();
+        }
+        matrix = MappedEmbeddingMatrix.open(path);
+        delta.clear();
+        return matrix;
+    }
+
+    /**
+     * Currently mapped matrix, or null before open().
+     */
+    public MappedEmbeddingMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Embeddings written since the snapshot was mapped, by product id.
+     */
+    public Map<Long, float[]> getDelta() {
+        return delta;
+    }
+
+    /**
+     * Record an embedding written while running.
+     */
+    public void put(Long productId, float[] embedding) {
+        delta.put(productId, embedding);
+    }
+
+    /**
+     * Exact re-ranking: score snapshot rows with full-precision vectors.
+     *
+     * @param query Query embedding
+     * @param rows Snapshot row numbers (e.g. a quantized shortlist)
+     * @param topK Collector receiving (product id, exact similarity)
+     */
+    public void scoreRows(float[] query, long[] rows, TopKCollector topK) {
+        MappedEmbeddingMatrix current = matrix;
+        for (long row : rows) {
+            int r = (int) row;
+            topK.offer(current.productId(r), current.similarity(kernel, query, r));
+        }
+    }
+
+    /**
+     * Score every embedding written since the snapshot was mapped.
+     *
+     * @param allowedIds Filter resolved by ProductFilterIndex, or null
+     */
+    public void scoreDelta(float[] query, TopKCollector topK, BitSet allowedIds) {
+        for (Map.Entry<Long, float[]> entry : delta.entrySet()) {
+            if (!ProductFilterIndex.accepts(allowedIds, entry.getKey())) {
+                continue;
+            }
+            float[] vector = entry.getValue();
+            float similarity = normalized ? kernel.dot(query, vector) : kernel.cosine(query, vector);
+            topK.offer(entry.getKey(), similarity);
+        }
+    }
+
+    /**
+     * Score every embedding written since the snapshot was mapped, for a batch of queries.
+     *
+     * @param collectors One collector per query
+     * @param allowedIds Filter resolved by ProductFilterIndex, or null
+     */
+    public void scoreDelta(float[][] queries, TopKCollector[] collectors, BitSet allowedIds) {
+        for (int q = 0; q < queries.length; q++) {
+            scoreDelta(queries[q], collectors[q], allowedIds);
+        }
+    }
+
+    /**
+     * Whether a snapshot row is superseded by a newer embedding in the delta.
+     */
+    public boolean isShadowed(int row) {
+        return !delta.isEmpty() && delta.containsKey(matrix.productId(row));
+    }
+
+    /**
+     * Whether stored vectors are unit-length (dot product == cosine).
+     */
+    public boolean isNormalized() {
+        return normalized;
+    }
+
+    /**
+     * A snapshot is current if it was written after the last product change,
+     * holds as many rows as there are embedded products (deleting a product
+     * does not move the latest modification time) and matches the
+     * configured normalization. Only the header is read.
+     */
+    private boolean isCurrent(Path path) {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try {
+            MappedEmbeddingMatrix.Header existing = MappedEmbeddingMatrix.readHeader(path);
+            long latestChange = productRepository.findLatestModifiedTime()
+                    .map(time -> time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                    .orElse(0L);
+            return existing.isNormalized() == normalized && existing.getCreatedAtMillis() >= latestChange
+                    && existing.getRows() == productRepository.countEmbedded();
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable embedding snapshot {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+}
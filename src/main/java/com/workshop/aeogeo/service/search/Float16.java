@@ -0,0 +1,107 @@
+package com.workshop.aeogeo.service.search;
+
+/**
+ * IEEE 754 half-precision (binary16) conversion for embedding storage.
+ *
+ * Values are held as the raw 16-bit pattern in a short: 1 sign bit,
+ * 5 exponent bits, 10 mantissa bits, i.e. about 3 significant decimal
+ * digits and a range of +-65504. Unit-length embedding components are
+ * far inside that range, so the rounding error (relative 2^-11) barely
+ * moves cosine scores.
+ *
+ * Same semantics as Float.floatToFloat16/float16ToFloat (Java 20+), which
+ * are not available on Java 17. Decoding is a lookup in a 65536-entry
+ * table.
+ */
+public final class Float16 {
+
+    private static final float[] TO_FLOAT = new float[1 << 16];
+
+    static {
+        for (int bits = 0; bits < TO_FLOAT.length; bits++) {
+            TO_FLOAT[bits] = decode(bits);
+        }
+    }
+
+    private Float16() {
+    }
+
+    /**
+     * Round a float to the nearest half-precision value (ties to even).
+     *
+     * @return binary16 bit pattern
+     */
+    public static short fromFloat(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        short sign = (short) ((bits >>> 16) & 0x8000);
+        if (Float.isNaN(value)) {
+            return (short) (sign | 0x7e00);
+        }
+        float magnitude = Math.abs(value);
+        if (magnitude >= 65520f) {
+            // Rounds past the largest finite half (65504)
+            return (short) (sign | 0x7c00);
+        }
+        if (magnitude <= 0x1.0p-25f) {
+            return sign;
+        }
+
+        int exponent = Math.getExponent(value);
+        int shift = 13;
+        int significand = bits & 0x007f_ffff;
+        if (exponent < -14) {
+            // Subnormal half: make the implicit leading bit explicit and shift it down
+            shift += -14 - exponent;
+            exponent = -15;
+            significand |= 0x0080_0000;
+        }
+        int half = significand >> shift;
+        int lsb = significand & (1 << shift);
+        int round = significand & (1 << (shift - 1));
+        int sticky = significand & ((1 << (shift - 1)) - 1);
+        if (round != 0 && (lsb | sticky) != 0) {
+            half++;
+        }
+        // A mantissa carry moves into the exponent, which is the correct result
+        return (short) (sign | (((exponent + 15) << 10) + half));
+    }
+
+    /**
+     * Widen a half-precision value to float (exact).
+     */
+    public static float toFloat(short half) {
+        return TO_FLOAT[half & 0xffff];
+    }
+
+    /**
+     * Encode a vector into dest starting at offset.
+     */
+    public static void encode(float[] vector, short[] dest, int offset) {
+        for (int i = 0; i < vector.length; i++) {
+            dest[offset + i] = fromFloat(vector[i]);
+        }
+    }
+
+    /**
+     * Decode dimension values starting at offset into dest.
+     */
+    public static void decode(short[] halves, int offset, float[] dest) {
+        for (int i = 0; i < dest.length; i++) {
+            dest[i] = TO_FLOAT[halves[offset + i] & 0xffff];
+        }
+    }
+
+    private static float decode(int bits) {
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1f;
+        int mantissa = bits & 0x3ff;
+        if (exponent == 0) {
+            float subnormal = mantissa * 0x1.0p-24f;
+            return sign == 0 ? subnormal : -subnormal;
+        }
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f80_0000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+}
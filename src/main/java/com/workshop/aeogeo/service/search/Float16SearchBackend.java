@@ -0,0 +1,306 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.dto.Float16IndexStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Half-precision (float16) Search Backend.
+ *
+ * Exact brute-force scan like the mmap backend, but the embeddings are
+ * kept on the heap as one contiguous short[] of IEEE binary16 values
+ * (see Float16): 2 bytes per dimension, half of float32, without the
+ * training step or approximate scores of int8/PQ. The query stays
+ * float32 and each row is widened on the fly by the SIMD kernel, so
+ * scoring costs about the same as float32 while reading half the memory.
+ *
+ * Float16 rounding (relative error 2^-11 per component) changes cosine
+ * scores by around 1e-4; recall@k against the float32 embeddings in
+ * pgvector is measured on demand through GET /api/admin/search/float16.
+ *
+ * Pairs with a halfvec products.embedding column, which stores the
+ * Postgres copy as float16 as well (see PgVectorIndexManager.convertStorage).
+ * The recall measurement needs the float32 column, so take it before
+ * converting.
+ *
+ * Enable with: search.backend=float16
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "float16")
+@Slf4j
+public class Float16SearchBackend implements VectorSearchBackend {
+
+    @Autowired
+    private ProductEmbeddingLoader embeddingLoader;
+
+    @Autowired
+    private ParallelTopKScanner scanner;
+
+    @Autowired
+    private PgVectorIndexManager indexManager;
+
+    @Value("${embedding.normalize:true}")
+    private boolean normalized;
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dimension;
+    private short[] halves = new short[0];
+    private long[] productIds = new long[0];
+    private float[] norms = new float[0];
+    private final Map<Long, Integer> rowByProductId = new HashMap<>();
+    private int size;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long startTime = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            dimension = 0;
+            halves = new short[0];
+            productIds = new long[16];
+            norms = new float[16];
+            rowByProductId.clear();
+            size = 0;
+            embeddingLoader.forEachEmbedding(this::upsert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (size == 0) {
+            log.warn("No embeddings found, float16 index left empty");
+            return;
+        }
+        log.info("Float16 index built: {} vectors x {} dims, {} KB vs {} KB float32 in {}ms",
+                size, dimension, (long) size * dimension * 2 / 1024, (long) size * dimension * Float.BYTES / 1024,
+                System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        lock.readLock().lock();
+        try {
+            if (size == 0 || dimension != queryEmbedding.length) {
+                return List.of();
+            }
+            return scan(queryEmbedding, limit, threshold, allowedIds).toMatches();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        lock.writeLock().lock();
+        try {
+            upsert(productId, embedding);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String getBackendName() {
+        return "float16";
+    }
+
+    /**
+     * Measure memory and the recall impact of float16 storage.
+     *
+     * Evaluation queries are stored embeddings of randomly chosen
+     * products, read back from pgvector in float32. Exact neighbours are
+     * computed by one streaming pass over pgvector for all queries at
+     * once and compared with a float16 scan of the same queries. The
+     * query's own product is left out of both rankings, since it would
+     * otherwise be a guaranteed hit. The pgvector passes run without the
+     * read lock so that writes are not blocked while they stream.
+     *
+     * Recall is only measured while products.embedding is a float32
+     * vector column: a halfvec column holds the same rounded values as
+     * this index and is no baseline.
+     *
+     * @param k Neighbours per query
+     * @param queries Number of evaluation queries
+     * @return Index statistics
+     */
+    public Float16IndexStats getStats(int k, int queries) {
+        Float16IndexStats stats = new Float16IndexStats();
+        int dimension;
+        long[] ids;
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return stats;
+            }
+            dimension = this.dimension;
+            ids = Arrays.copyOf(productIds, size);
+            stats.setBytesPerVector(bytesPerVector());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.setVectors(ids.length);
+        stats.setDimension(dimension);
+        stats.setFloat32BytesPerVector(dimension * Float.BYTES);
+        stats.setHeapBytes((long) ids.length * stats.getBytesPerVector());
+        stats.setK(k);
+        stats.setBaselineType(indexManager.columnType());
+        if (!"vector".equals(stats.getBaselineType())) {
+            log.warn("products.embedding is {}, not float32: float16 recall not measured", stats.getBaselineType());
+            return stats;
+        }
+
+        // Pass 1: float32 embeddings of random products as queries
+        Random random = new Random(7);
+        Map<Long, Integer> queryByProductId = new HashMap<>();
+        while (queryByProductId.size() < Math.min(queries, ids.length)) {
+            queryByProductId.putIfAbsent(ids[random.nextInt(ids.length)], queryByProductId.size());
+        }
+        long[] queryIds = new long[queryByProductId.size()];
+        float[][] evalQueries = new float[queryIds.length][];
+        embeddingLoader.forEachEmbedding((productId, embedding) -> {
+            Integer q = queryByProductId.get(productId);
+            if (q != null && embedding.length == dimension) {
+                queryIds[q] = productId;
+                evalQueries[q] = SimilarityKernels.normalize(embedding);
+            }
+        });
+
+        // Pass 2: exact float32 neighbours of every query, without the query's own product
+        TopKCollector[] exact = new TopKCollector[evalQueries.length];
+        for (int q = 0; q < exact.length; q++) {
+            exact[q] = new TopKCollector(k, Float.NEGATIVE_INFINITY);
+        }
+        embeddingLoader.forEachEmbedding((productId, embedding) -> {
+            for (int q = 0; q < evalQueries.length; q++) {
+                if (evalQueries[q] != null && productId != queryIds[q] && embedding.length == dimension) {
+                    exact[q].offer(productId, kernel.cosine(evalQueries[q], embedding));
+                }
+            }
+        });
+
+        long found = 0;
+        long expected = 0;
+        int evaluated = 0;
+        double maxScoreError = 0.0;
+        lock.readLock().lock();
+        try {
+            if (this.dimension != dimension) {
+                return stats;
+            }
+            for (int q = 0; q < evalQueries.length; q++) {
+                if (evalQueries[q] == null) {
+                    continue;
+                }
+                evaluated++;
+                // One extra result in case the query's own product is ranked
+                Set<Long> approximate = new HashSet<>();
+                for (VectorMatch match : scan(evalQueries[q], k + 1, Float.NEGATIVE_INFINITY, null).toMatches()) {
+                    if (approximate.size() < k && match.getProductId() != queryIds[q]) {
+                        approximate.add(match.getProductId());
+                    }
+                }
+                for (VectorMatch match : exact[q].toMatches()) {
+                    if (approximate.contains(match.getProductId())) {
+                        found++;
+                    }
+                    Integer row = rowByProductId.get(match.getProductId());
+                    if (row != null) {
+                        maxScoreError = Math.max(maxScoreError,
+                                Math.abs(score(evalQueries[q], 1f, row) - match.getSimilarity()));
+                    }
+                }
+                expected += exact[q].size();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.setEvaluationQueries(evaluated);
+        stats.setRecallAtK(expected == 0 ? 0.0 : (double) found / expected);
+        stats.setMaxScoreError(maxScoreError);
+        return stats;
+    }
+
+    /**
+     * Brute-force scan over all rows. Caller holds the read lock.
+     */
+    private TopKCollector scan(float[] query, int limit, double threshold, BitSet allowedIds) {
+        float queryNorm = normalized ? 1f : kernel.norm(query);
+        long[] ids = productIds;
+
+        return scanner.scan(size, limit, threshold, (from, to, collector) -> {
+            for (int row = from; row < to; row++) {
+                if (ProductFilterIndex.accepts(allowedIds, ids[row])) {
+                    collector.offer(ids[row], score(query, queryNorm, row));
+                }
+            }
+        });
+    }
+
+    /**
+     * Cosine similarity of a query with one row. Caller holds the read lock.
+     */
+    private float score(float[] query, float queryNorm, int row) {
+        float dot = kernel.dot(query, halves, row * dimension);
+        if (normalized) {
+            return dot;
+        }
+        float denominator = queryNorm * norms[row];
+        return denominator == 0f ? 0f : dot / denominator;
+    }
+
+    /**
+     * Encode and store a product, overwriting its row if present. Caller holds the write lock.
+     */
+    private void upsert(Long productId, float[] embedding) {
+        if (dimension == 0) {
+            dimension = embedding.length;
+            halves = new short[productIds.length * dimension];
+        }
+        if (embedding.length != dimension) {
+            log.warn("Skipping product {}: embedding dimension {} differs from float16 index", productId,
+                    embedding.length);
+            return;
+        }
+        Integer row = rowByProductId.get(productId);
+        if (row == null) {
+            if (size == productIds.length) {
+                // One Java array holds at most ~2^31 values (~1.4M embeddings of 1536 dims)
+                int capacity = (int) Math.min((long) size * 2, (Integer.MAX_VALUE - 8) / dimension);
+                if (capacity <= size) {
+                    throw new IllegalStateException("Float16 index is full at " + size + " embeddings");
+                }
+                productIds = Arrays.copyOf(productIds, capacity);
+                norms = Arrays.copyOf(norms, capacity);
+                halves = Arrays.copyOf(halves, capacity * dimension);
+            }
+            row = size++;
+            rowByProductId.put(productId, row);
+            productIds[row] = productId;
+        }
+        Float16.encode(embedding, halves, row * dimension);
+        norms[row] = normalized ? 1f : kernel.norm(embedding);
+    }
+
+    private int bytesPerVector() {
+        // float16 values, plus the float32 norm needed for cosine when vectors are not unit-length
+        return dimension * 2 + (normalized ? 0 : Float.BYTES);
+    }
+}
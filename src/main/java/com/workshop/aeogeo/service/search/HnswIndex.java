@@ -0,0 +1,362 @@
+package com.workshop.aeogeo.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph over product embeddings.
+ *
+ * Each node stores its vector as a primitive float[] and one neighbour
+ * list per layer. Upper layers are sparse "express lanes"; layer 0 holds
+ * every node with up to 2*M links.
+ *
+ * Parameters:
+ * - m: links per node on upper layers (memory vs recall)
+ * - efConstruction: candidate list size while inserting (build time vs graph quality)
+ * - efSearch: candidate list size while searching (latency vs recall)
+ *
+ * With unit-length vectors (embedding.normalize=true) the distance is
+ * 1 - dot product; otherwise the kernel's fused cosine is used.
+ *
+ * Re-indexing a product marks the old node deleted; deleted nodes still
+ * route searches but are never returned.
+ *
+ * Filtered searches traverse the whole graph but only admit allowed
+ * nodes to the result list, so the walk continues past excluded
+ * neighbourhoods; very selective filters should use searchExact().
+ *
+ * Thread-safety: searches share a read lock, inserts take the write lock.
+ */
+public class HnswIndex {
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final boolean normalized;
+    private final Random random = new Random(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+
+    private float[][] vectors = new float[16][];
+    private long[] productIds = new long[16];
+    private int[][][] links = new int[16][][];
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> nodeByProductId = new HashMap<>();
+
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param m Links per node on upper layers
+     * @param efConstruction Candidate list size while inserting
+     * @param normalized Whether stored and query vectors are unit-length
+     */
+    public HnswIndex(int m, int efConstruction, boolean normalized) {
+        this.m = m;
+        this.normalized = normalized;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    /**
+     * Insert or replace the embedding of a product.
+     *
+     * @param productId Product id
+     * @param vector Product embedding
+     */
+    public void add(long productId, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodeByProductId.get(productId);
+            if (previous != null) {
+                deleted.set(previous);
+            }
+
+            int node = allocate(productId, vector);
+            nodeByProductId.put(productId, node);
+            int level = randomLevel();
+            links[node] = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                links[node][l] = new int[0];
+            }
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(vector, current, l);
+            }
+
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Candidate> candidates = searchLayer(vector, current, efConstruction, l, null);
+                int[] neighbours = selectNeighbours(vector, candidates, m);
+                links[node][l] = neighbours;
+                for (int neighbour : neighbours) {
+                    connect(neighbour, node, l);
+                }
+                current = candidates.get(0).node;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate k-nearest-neighbour search.
+     *
+     * @param query Query embedding
+     * @param k Maximum number of matches
+     * @param efSearch Candidate list size (raised to k if smaller)
+     * @param threshold Minimum cosine similarity
+     * @return Matches ordered by descending similarity
+     */
+    public List<VectorMatch> search(float[] query, int k, int efSearch, double threshold) {
+        return search(query, k, efSearch, threshold, null);
+    }
+
+    /**
+     * Approximate k-nearest-neighbour search restricted to a set of products.
+     *
+     * @param allowedIds Product ids resolved by ProductFilterIndex, or null for no filter
+     */
+    public List<VectorMatch> search(float[] query, int k, int efSearch, double threshold, BitSet allowedIds) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(query, current, l);
+            }
+
+            List<Candidate> candidates = searchLayer(query, current, Math.max(efSearch, k), 0, allowedIds);
+
+            List<VectorMatch> matches = new ArrayList<>(k);
+            for (Candidate candidate : candidates) {
+                if (matches.size() == k) {
+                    break;
+                }
+                double similarity = 1.0 - candidate.distance;
+                if (similarity < threshold) {
+                    break;
+                }
+                if (!deleted.get(candidate.node)) {
+                    matches.add(new VectorMatch(productIds[candidate.node], similarity));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact search over the allowed products only, for filters so selective
+     * that a graph walk would visit mostly excluded nodes.
+     *
+     * @param allowedIds Product ids resolved by ProductFilterIndex
+     * @return Matches ordered by descending similarity
+     */
+    public List<VectorMatch> searchExact(float[] query, int k, double threshold, BitSet allowedIds) {
+        lock.readLock().lock();
+        try {
+            TopKCollector topK = new TopKCollector(k, threshold);
+            for (int id = allowedIds.nextSetBit(0); id >= 0; id = allowedIds.nextSetBit(id + 1)) {
+                Integer node = nodeByProductId.get((long) id);
+                if (node != null) {
+                    topK.offer(id, 1.0f - distance(query, vectors[node]));
+                }
+            }
+            return topK.toMatches();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live (non-deleted) products in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int allocate(long productId, float[] vector) {
+        if (size == vectors.length) {
+            int capacity = size * 2;
+            vectors = Arrays.copyOf(vectors, capacity);
+            productIds = Arrays.copyOf(productIds, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        vectors[size] = vector;
+        productIds[size] = productId;
+        return size++;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    /**
+     * Walk greedily towards the query on one layer (ef = 1).
+     */
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, vectors[current]);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : links[current][level]) {
+                float d = distance(query, vectors[neighbour]);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer.
+     *
+     * With a filter, every node is still traversed but only allowed nodes
+     * enter the result list.
+     *
+     * @param allowedIds Product ids allowed in the result, or null
+     * @return Up to ef candidates ordered by ascending distance
+     */
+    private List<Candidate> searchLayer(float[] query, int start, int ef, int level, BitSet allowedIds) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> toVisit = new PriorityQueue<>(Comparator.comparingDouble(c -> c.distance));
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble((Candidate c) -> c.distance).reversed());
+
+        Candidate first = new Candidate(start, distance(query, vectors[start]));
+        visited.set(start);
+        toVisit.add(first);
+        if (ProductFilterIndex.accepts(allowedIds, productIds[start])) {
+            best.add(first);
+        }
+
+        while (!toVisit.isEmpty()) {
+            Candidate closest = toVisit.poll();
+            if (best.size() >= ef && closest.distance > best.peek().distance) {
+                break;
+            }
+            for (int neighbour : links[closest.node][level]) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float d = distance(query, vectors[neighbour]);
+                if (best.size() < ef || d < best.peek().distance) {
+                    Candidate candidate = new Candidate(neighbour, d);
+                    toVisit.add(candidate);
+                    if (ProductFilterIndex.accepts(allowedIds, productIds[neighbour])) {
+                        best.add(candidate);
+                        if (best.size() > ef) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(c -> c.distance));
+        return result;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer
+     * to the base vector than to every neighbour already kept. This spreads
+     * links across clusters instead of wiring one dense clique.
+     */
+    private int[] selectNeighbours(float[] base, List<Candidate> candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.size())];
+        int count = 0;
+        for (Candidate candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            boolean keep = true;
+            for (int i = 0; i < count; i++) {
+                if (distance(vectors[candidate.node], vectors[selected[i]]) < candidate.distance) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate.node;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Add a back-link from node to target, pruning node's list if it overflows.
+     */
+    private void connect(int node, int target, int level) {
+        int max = level == 0 ? maxM0 : m;
+        int[] current = links[node][level];
+        if (current.length < max) {
+            int[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = target;
+            links[node][level] = grown;
+            return;
+        }
+
+        List<Candidate> candidates = new ArrayList<>(current.length + 1);
+        for (int neighbour : current) {
+            candidates.add(new Candidate(neighbour, distance(vectors[node], vectors[neighbour])));
+        }
+        candidates.add(new Candidate(target, distance(vectors[node], vectors[target])));
+        candidates.sort(Comparator.comparingDouble(c -> c.distance));
+        links[node][level] = selectNeighbours(vectors[node], candidates, max);
+    }
+
+    /**
+     * Cosine distance (1 - cosine similarity).
+     */
+    private float distance(float[] a, float[] b) {
+        return 1.0f - (normalized ? kernel.dot(a, b) : kernel.cosine(a, b));
+    }
+
+    private static final class Candidate {
+        private final int node;
+        private final float distance;
+
+        private Candidate(int node, float distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+}
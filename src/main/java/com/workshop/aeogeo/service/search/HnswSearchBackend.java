@@ -0,0 +1,93 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * In-process HNSW Search Backend.
+ *
+ * Keeps product embeddings in an in-memory HNSW graph so that a query is
+ * answered without a database round-trip. pgvector stays the source of
+ * truth: the graph is built from it on startup and new embeddings are
+ * added as EmbeddingGenerationService writes them.
+ *
+ * Enable with: search.backend=hnsw
+ *
+ * Tuning (search.hnsw.*):
+ * - m: links per node (default 16)
+ * - ef-construction: build-time candidate list (default 200)
+ * - ef-search: query-time candidate list (default 64)
+ * - filtered-exact-below: filtered searches matching fewer products than
+ *   this score them exactly instead of walking the graph (default 2000)
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "hnsw")
+@Slf4j
+public class HnswSearchBackend implements VectorSearchBackend {
+
+    @Autowired
+    private ProductEmbeddingLoader embeddingLoader;
+
+    @Value("${search.hnsw.m:16}")
+    private int m;
+
+    @Value("${search.hnsw.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${search.hnsw.ef-search:64}")
+    private int efSearch;
+
+    @Value("${search.hnsw.filtered-exact-below:2000}")
+    private int filteredExactBelow;
+
+    @Value("${embedding.normalize:true}")
+    private boolean normalized;
+
+    private volatile HnswIndex index;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long startTime = System.currentTimeMillis();
+
+        HnswIndex built = new HnswIndex(m, efConstruction, normalized);
+        int loaded = embeddingLoader.forEachEmbedding(built::add);
+        index = built;
+
+        log.info("HNSW index built with {} embeddings in {}ms (m={}, ef_construction={}, ef_search={})",
+                loaded, System.currentTimeMillis() - startTime, m, efConstruction, efSearch);
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        HnswIndex current = index;
+        if (current == null) {
+            log.warn("HNSW index not built yet, returning no results");
+            return List.of();
+        }
+        if (allowedIds != null && allowedIds.cardinality() < filteredExactBelow) {
+            return current.searchExact(queryEmbedding, limit, threshold, allowedIds);
+        }
+        return current.search(queryEmbedding, limit, efSearch, threshold, allowedIds);
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        HnswIndex current = index;
+        if (current != null) {
+            current.add(productId, embedding);
+        }
+    }
+
+    @Override
+    public String getBackendName() {
+        return "hnsw";
+    }
+}
@@ -0,0 +1,140 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Int8 Quantized Search Backend.
+ *
+ * Two-phase search:
+ * 1. Scan int8 scalar-quantized codes (1 byte per dimension, 4x smaller
+ *    than float32) kept on the heap and shortlist the best candidates.
+ * 2. Re-score the shortlist with full-precision vectors read from the
+ *    memory-mapped snapshot (EmbeddingSnapshotStore) and apply the
+ *    threshold and limit to the exact scores.
+ *
+ * Quantization error only affects which rows make the shortlist, not the
+ * similarity values returned. Embeddings written while running are kept
+ * full-precision in the snapshot delta and scored exactly.
+ *
+ * Enable with: search.backend=int8
+ *
+ * Tuning:
+ * - search.int8.rerank-candidates: shortlist size (default 200)
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "int8")
+@Slf4j
+public class Int8QuantizedSearchBackend implements VectorSearchBackend {
+
+    @Autowired
+    private EmbeddingSnapshotStore snapshotStore;
+
+    @Autowired
+    private ParallelTopKScanner scanner;
+
+    @Value("${search.int8.rerank-candidates:200}")
+    private int rerankCandidates;
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private volatile QuantizedRows rows;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() throws IOException {
+        long startTime = System.currentTimeMillis();
+        MappedEmbeddingMatrix matrix = snapshotStore.open();
+
+        ScalarQuantizer.Trainer trainer = new ScalarQuantizer.Trainer(matrix.getDimension());
+        for (int row = 0; row < matrix.getRows(); row++) {
+            trainer.observe(matrix.row(row));
+        }
+        ScalarQuantizer quantizer = trainer.build();
+
+        byte[][] codes = new byte[matrix.getRows()][];
+        float[] norms = new float[matrix.getRows()];
+        for (int row = 0; row < matrix.getRows(); row++) {
+            float[] vector = matrix.row(row);
+            codes[row] = quantizer.encode(vector);
+            norms[row] = kernel.norm(vector);
+        }
+        rows = new QuantizedRows(matrix, quantizer, codes, norms);
+
+        log.info("Int8 index built for {} embeddings ({} KB codes vs {} KB float32) in {}ms",
+                matrix.getRows(),
+                (long) matrix.getRows() * matrix.getDimension() / 1024,
+                (long) matrix.getRows() * matrix.getDimension() * Float.BYTES / 1024,
+                System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        QuantizedRows current = rows;
+        boolean normalized = snapshotStore.isNormalized();
+        TopKCollector topK = new TopKCollector(limit, threshold);
+
+        if (current != null && current.matrix.getDimension() == queryEmbedding.length) {
+            // Phase 1: approximate scores from int8 codes, rows as ids
+            float[] scaledQuery = new float[queryEmbedding.length];
+            float offset = current.quantizer.prepareQuery(queryEmbedding, scaledQuery);
+            float queryNorm = normalized ? 1f : kernel.norm(queryEmbedding);
+
+            TopKCollector shortlist = scanner.scan(current.codes.length, Math.max(rerankCandidates, limit),
+                    Float.NEGATIVE_INFINITY, (from, to, collector) -> {
+                for (int row = from; row < to; row++) {
+                    if (!ProductFilterIndex.accepts(allowedIds, current.matrix.productId(row))
+                            || snapshotStore.isShadowed(row)) {
+                        continue;
+                    }
+                    float approx = offset + kernel.dot(scaledQuery, current.codes[row]);
+                    if (!normalized) {
+                        float denominator = queryNorm * current.norms[row];
+                        approx = denominator == 0f ? 0f : approx / denominator;
+                    }
+                    collector.offer(row, approx);
+                }
+            });
+
+            // Phase 2: exact re-ranking from the mapped float32 rows
+            snapshotStore.scoreRows(queryEmbedding, shortlist.ids(), topK);
+        }
+        snapshotStore.scoreDelta(queryEmbedding, topK, allowedIds);
+
+        return topK.toMatches();
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        snapshotStore.put(productId, embedding);
+    }
+
+    @Override
+    public String getBackendName() {
+        return "int8";
+    }
+
+    /**
+     * Immutable quantized view of one snapshot, swapped atomically on rebuild.
+     */
+    private static final class QuantizedRows {
+        private final MappedEmbeddingMatrix matrix;
+        private final ScalarQuantizer quantizer;
+        private final byte[][] codes;
+        private final float[] norms;
+
+        private QuantizedRows(MappedEmbeddingMatrix matrix, ScalarQuantizer quantizer, byte[][] codes, float[] norms) {
+            this.matrix = matrix;
+            this.quantizer = quantizer;
+            this.codes = codes;
+            this.norms = norms;
+        }
+    }
+}
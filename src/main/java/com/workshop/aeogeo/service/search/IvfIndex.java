@@ -0,0 +1,264 @@
+package com.workshop.aeogeo.service.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Inverted-file (IVF) index over product embeddings.
+ *
+ * Vectors are partitioned into nlist clusters by spherical k-means; each
+ * cluster keeps an inverted list of its members. A query scores the nlist
+ * centroids, then scans only the nprobe closest lists, so the cost is
+ * roughly nprobe / nlist of a full scan.
+ *
+ * Inserts are cheap: a new or changed vector is assigned to its nearest
+ * centroid and appended to that list, without retraining. Heavy churn
+ * can make some lists much larger than others; skew() reports this so
+ * the owner can retrain (see IvfSearchBackend).
+ *
+ * With unit-length vectors (embedding.normalize=true) the score is the
+ * dot product; otherwise the kernel's fused cosine is used.
+ *
+ * Thread-safety: searches share a read lock, inserts take the write lock.
+ */
+public class IvfIndex {
+
+    private final int dimension;
+    private final boolean normalized;
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Unit-length cluster centroids. */
+    private final float[][] centroids;
+    private final InvertedList[] lists;
+
+    /** Product id -> list number. */
+    private final Map<Long, Integer> listByProductId = new HashMap<>();
+
+    private IvfIndex(float[][] centroids, boolean normalized) {
+        this.centroids = centroids;
+        this.dimension = centroids[0].length;
+        this.normalized = normalized;
+        this.lists = new InvertedList[centroids.length];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new InvertedList();
+        }
+    }
+
+    /**
+     * Train centroids with spherical k-means; the index starts empty.
+     *
+     * @param sample Training vectors (all of the same dimension)
+     * @param nlist Number of clusters; capped at the sample size
+     * @param iterations k-means iterations
+     * @param seed Random seed for centroid initialisation
+     * @param normalized Whether stored and query vectors are unit-length
+     * @return Empty index with trained centroids
+     */
+    public static IvfIndex train(List<float[]> sample, int nlist, int iterations, long seed, boolean normalized) {
+        if (sample.isEmpty()) {
+            throw new IllegalArgumentException("Cannot train IVF centroids without sample vectors");
+        }
+        int k = Math.max(1, Math.min(nlist, sample.size()));
+        int dimension = sample.get(0).length;
+        SimilarityKernel kernel = SimilarityKernels.get();
+        Random random = new Random(seed);
+
+        float[][] centroids = new float[k][];
+        for (int c = 0; c < k; c++) {
+            centroids[c] = SimilarityKernels.normalize(sample.get(random.nextInt(sample.size())).clone());
+        }
+
+        float[][] sums = new float[k][dimension];
+        int[] counts = new int[k];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (float[] sum : sums) {
+                Arrays.fill(sum, 0f);
+            }
+            Arrays.fill(counts, 0);
+
+            for (float[] vector : sample) {
+                int nearest = nearestCentroid(kernel, centroids, vector);
+                counts[nearest]++;
+                float[] sum = sums[nearest];
+                float norm = normalized ? 1f : kernel.norm(vector);
+                for (int j = 0; j < dimension; j++) {
+                    sum[j] += norm == 0f ? 0f : vector[j] / norm;
+                }
+            }
+
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // Empty cluster: reseed from a random sample vector
+                    centroids[c] = SimilarityKernels.normalize(sample.get(random.nextInt(sample.size())).clone());
+                } else {
+                    centroids[c] = SimilarityKernels.normalize(sums[c].clone());
+                }
+            }
+        }
+        return new IvfIndex(centroids, normalized);
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int getListCount() {
+        return lists.length;
+    }
+
+    /**
+     * Insert or replace the embedding of a product, appending it to the
+     * list of its nearest centroid.
+     */
+    public void add(long productId, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                "Embedding dimension " + vector.length + " differs from IVF index dimension " + dimension);
+        }
+        int list = nearestCentroid(kernel, centroids, vector);
+        lock.writeLock().lock();
+        try {
+            Integer previous = listByProductId.put(productId, list);
+            if (previous != null) {
+                lists[previous].remove(productId);
+            }
+            lists[list].add(productId, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the nearest products by scanning the nprobe closest lists.
+     *
+     * @param query Query vector
+     * @param k Maximum number of matches
+     * @param nprobe Number of lists scanned
+     * @param threshold Minimum similarity
+     * @param allowedIds Product ids resolved by ProductFilterIndex, or null
+     * @return Matches ordered by descending similarity
+     */
+    public List<VectorMatch> search(float[] query, int k, int nprobe, double threshold, BitSet allowedIds) {
+        TopKCollector probes = new TopKCollector(Math.min(nprobe, lists.length), Float.NEGATIVE_INFINITY);
+        for (int c = 0; c < centroids.length; c++) {
+            probes.offer(c, kernel.dot(query, centroids[c]));
+        }
+
+        TopKCollector topK = new TopKCollector(k, threshold);
+        lock.readLock().lock();
+        try {
+            for (long list : probes.ids()) {
+                InvertedList members = lists[(int) list];
+                for (int i = 0; i < members.size; i++) {
+                    long productId = members.productIds[i];
+                    if (ProductFilterIndex.accepts(allowedIds, productId)) {
+                        float[] vector = members.vectors[i];
+                        topK.offer(productId, normalized ? kernel.dot(query, vector) : kernel.cosine(query, vector));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topK.toMatches();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return listByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * List-size skew: largest list divided by the mean list size (1.0 = perfectly balanced).
+     */
+    public double skew() {
+        lock.readLock().lock();
+        try {
+            if (listByProductId.isEmpty()) {
+                return 1.0;
+            }
+            int largest = 0;
+            for (InvertedList list : lists) {
+                largest = Math.max(largest, list.size);
+            }
+            return largest / ((double) listByProductId.size() / lists.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visit every stored vector (e.g. to retrain). Holds the read lock.
+     */
+    public void forEach(BiConsumer<Long, float[]> consumer) {
+        lock.readLock().lock();
+        try {
+            for (InvertedList list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    consumer.accept(list.productIds[i], list.vectors[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int nearestCentroid(SimilarityKernel kernel, float[][] centroids, float[] vector) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            float score = kernel.dot(vector, centroids[c]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Members of one cluster; removal swaps in the last entry.
+     */
+    private static final class InvertedList {
+        private long[] productIds = new long[8];
+        private float[][] vectors = new float[8][];
+        private final Map<Long, Integer> positions = new HashMap<>();
+        private int size;
+
+        private void add(long productId, float[] vector) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                vectors = Arrays.copyOf(vectors, size * 2);
+            }
+            productIds[size] = productId;
+            vectors[size] = vector;
+            positions.put(productId, size++);
+        }
+
+        private void remove(long productId) {
+            Integer position = positions.remove(productId);
+            if (position == null) {
+                return;
+            }
+            int last = --size;
+            if (position != last) {
+                productIds[position] = productIds[last];
+                vectors[position] = vectors[last];
+                positions.put(productIds[position], position);
+            }
+            vectors[last] = null;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.workshop.aeogeo.service.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * IVF (inverted file) Search Backend.
+ *
+ * Clusters product embeddings with k-means and scans only the nprobe
+ * lists whose centroids are closest to the query (see IvfIndex). Inserts
+ * only assign the new vector to its nearest centroid, which makes this
+ * backend a good fit for catalogs with high churn.
+ *
+ * Inserts are never followed by a retrain, so clusters drift over time.
+ * List-size skew (largest list / mean list size) is recorded after each
+ * training; once it grows to rebalance-skew times that baseline, the
+ * centroids are retrained from the current contents on a background
+ * thread and the new index is swapped in; embeddings written during the
+ * retrain are replayed into it. The baseline makes the trigger independent
+ * of how unevenly the catalog clusters naturally.
+ *
+ * Enable with: search.backend=ivf
+ *
+ * Tuning (search.ivf.*):
+ * - nlist: number of clusters, 0 = sqrt(number of embeddings) (default 0)
+ * - nprobe: lists scanned per query (default 8)
+ * - training-sample: vectors used to train centroids (default 50000)
+ * - training-iterations: k-means iterations (default 15)
+ * - rebalance-skew: growth of list-size skew since training that triggers a retrain (default 2.0)
+ * - rebalance-min-interval-ms: minimum time between retrains (default 600000)
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "ivf")
+@Slf4j
+public class IvfSearchBackend implements VectorSearchBackend {
+
+    @Autowired
+    private ProductEmbeddingLoader embeddingLoader;
+
+    @Value("${search.ivf.nlist:0}")
+    private int nlist;
+
+    @Value("${search.ivf.nprobe:8}")
+    private int nprobe;
+
+    @Value("${search.ivf.training-sample:50000}")
+    private int trainingSampleSize;
+
+    @Value("${search.ivf.training-iterations:15}")
+    private int trainingIterations;
+
+    @Value("${search.ivf.rebalance-skew:2.0}")
+    private double rebalanceSkew;
+
+    @Value("${search.ivf.rebalance-min-interval-ms:600000}")
+    private long rebalanceMinIntervalMs;
+
+    @Value("${embedding.normalize:true}")
+    private boolean normalized;
+
+    private ExecutorService rebalancer;
+    private volatile IvfIndex index;
+
+    /** Embeddings written while a retrain runs, replayed into the new index; guarded by this. */
+    private final Map<Long, float[]> pendingWrites = new LinkedHashMap<>();
+    private boolean rebalancing;
+    private long lastRebalanceMillis;
+    private double trainedSkew = 1.0;
+
+    @PostConstruct
+    public void initialize() {
+        rebalancer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ivf-rebalance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebalancer.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long startTime = System.currentTimeMillis();
+
+        List<Long> ids = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        embeddingLoader.forEachEmbedding((productId, embedding) -> {
+            ids.add(productId);
+            vectors.add(embedding);
+        });
+        if (vectors.isEmpty()) {
+            log.warn("No embeddings found, IVF index left empty");
+            return;
+        }
+
+        IvfIndex built = train(ids, vectors);
+        synchronized (this) {
+            index = built;
+            trainedSkew = built.skew();
+            lastRebalanceMillis = System.currentTimeMillis();
+        }
+
+        log.info("IVF index built with {} embeddings in {} lists (nprobe={}, skew {}) in {}ms",
+                built.size(), built.getListCount(), nprobe, String.format("%.2f", built.skew()),
+                System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        IvfIndex current = index;
+        if (current == null || current.getDimension() != queryEmbedding.length) {
+            return List.of();
+        }
+        return current.search(queryEmbedding, limit, nprobe, threshold, allowedIds);
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        synchronized (this) {
+            IvfIndex current = index;
+            if (current == null || current.getDimension() != embedding.length) {
+                return;
+            }
+            current.add(productId, embedding);
+            if (rebalancing) {
+                pendingWrites.put(productId, embedding);
+            }
+        }
+        scheduleRebalanceIfSkewed();
+    }
+
+    @Override
+    public String getBackendName() {
+        return "ivf";
+    }
+
+    /**
+     * Retrain in the background once list sizes drift too far apart.
+     */
+    private void scheduleRebalanceIfSkewed() {
+        IvfIndex current = index;
+        double skew = current.skew();
+        synchronized (this) {
+            if (rebalancing || skew < trainedSkew * rebalanceSkew
+                    || System.currentTimeMillis() - lastRebalanceMillis < rebalanceMinIntervalMs) {
+                return;
+            }
+            rebalancing = true;
+        }
+        log.info("IVF list skew grew from {} to {}, retraining centroids in the background",
+                String.format("%.2f", trainedSkew), String.format("%.2f", skew));
+        rebalancer.execute(this::rebalance);
+    }
+
+    private void rebalance() {
+        long startTime = System.currentTimeMillis();
+        try {
+            List<Long> ids = new ArrayList<>();
+            List<float[]> vectors = new ArrayList<>();
+            index.forEach((productId, vector) -> {
+                ids.add(productId);
+                vectors.add(vector);
+            });
+            IvfIndex retrained = train(ids, vectors);
+
+            synchronized (this) {
+                pendingWrites.forEach(retrained::add);
+                index = retrained;
+                trainedSkew = retrained.skew();
+            }
+            log.info("IVF index rebalanced: {} embeddings in {} lists, skew {} in {}ms",
+                    retrained.size(), retrained.getListCount(), String.format("%.2f", retrained.skew()),
+                    System.currentTimeMillis() - startTime);
+        } catch (RuntimeException e) {
+            log.error("IVF rebalance failed, keeping the current index", e);
+        } finally {
+            synchronized (this) {
+                pendingWrites.clear();
+                rebalancing = false;
+                lastRebalanceMillis = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Train centroids on a random sample and assign every vector.
+     */
+    private IvfIndex train(List<Long> ids, List<float[]> vectors) {
+        List<float[]> sample = vectors;
+        if (vectors.size() > trainingSampleSize) {
+            Random random = new Random(42);
+            sample = new ArrayList<>(trainingSampleSize);
+            for (int i = 0; i < trainingSampleSize; i++) {
+                sample.add(vectors.get(random.nextInt(vectors.size())));
+            }
+        }
+        int lists = nlist > 0 ? nlist : Math.max(1, (int) Math.sqrt(vectors.size()));
+
+        IvfIndex trained = IvfIndex.train(sample, lists, trainingIterations, 42, normalized);
+        for (int i = 0; i < vectors.size(); i++) {
+            trained.add(ids.get(i), vectors.get(i));
+        }
+        return trained;
+    }
+}
@@ -0,0 +1,301 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.repository.ProductFeatureText;
+import com.workshop.aeogeo.repository.ProductRepository;
+import com.workshop.aeogeo.repository.ProductText;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-process BM25 inverted index over product text.
+ *
+ * Replaces the LIKE '%term%' scan of ProductRepository.searchProducts for
+ * hybrid search. Indexed fields, with per-field term-frequency weights
+ * (a simplified BM25F):
+ * - name (3.0), summary (2.0), classification attributes (1.5),
+ *   manufacturer name (1.5), description (1.0)
+ *
+ * Product codes, EANs and model-number attributes are also kept in an
+ * exact identifier map, so SKU/EAN lookups are a single hash probe.
+ * Identifiers are compared lower-cased with punctuation and spaces
+ * removed ("EOS-R5" == "eos r5").
+ *
+ * Rebuilt lazily when the catalog changes (see CatalogSnapshot).
+ */
+@Component
+@Slf4j
+public class LexicalSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern IDENTIFIER_NOISE = Pattern.compile("[^\\p{L}\\p{N}]");
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float SUMMARY_WEIGHT = 2.0f;
+    private static final float ATTRIBUTE_WEIGHT = 1.5f;
+    private static final float MANUFACTURER_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    /** BM25 term-frequency saturation */
+    private static final float K1 = 1.2f;
+
+    /** BM25 document-length normalization */
+    private static final float B = 0.75f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Value("${search.lexical.refresh-interval-ms:30000}")
+    private long refreshIntervalMs;
+
+    private CatalogSnapshot<Index> index;
+
+    @PostConstruct
+    public void initialize() {
+        index = new CatalogSnapshot<>("lexical index", this::build, catalogVersion, refreshIntervalMs);
+    }
+
+    /**
+     * Exact product lookup by code, EAN or model number.
+     *
+     * @param query Raw query text
+     * @return Matching product id, if the whole query is a known identifier
+     */
+    public Optional<Long> findByIdentifier(String query) {
+        String key = normalizeIdentifier(query);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(index.get().identifiers.get(key));
+    }
+
+    /**
+     * BM25 ranking of the query terms.
+     *
+     * @param query Query text
+     * @param limit Maximum number of matches
+     * @param allowedIds Product ids resolved by ProductFilterIndex, or null
+     * @return Matches ordered by descending BM25 score (held in VectorMatch.similarity)
+     */
+    public List<VectorMatch> search(String query, int limit, BitSet allowedIds) {
+        Index current = index.get();
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || current.documents == 0) {
+            return List.of();
+        }
+
+        float[] scores = new float[current.documents];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+
+        for (String term : terms) {
+            Postings postings = current.postings.get(term);
+            if (postings == null) {
+                continue;
+            }
+            int df = postings.docs.length;
+            float idf = (float) Math.log(1 + (current.documents - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < df; i++) {
+                int doc = postings.docs[i];
+                float tf = postings.frequencies[i];
+                float lengthNorm = 1 - B + B * current.lengths[doc] / current.averageLength;
+                if (scores[doc] == 0f) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += idf * tf * (K1 + 1) / (tf + K1 * lengthNorm);
+            }
+        }
+
+        TopKCollector topK = new TopKCollector(limit, Float.MIN_VALUE);
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            long productId = current.productIds[doc];
+            if (ProductFilterIndex.accepts(allowedIds, productId)) {
+                topK.offer(productId, scores[doc]);
+            }
+        }
+        return topK.toMatches();
+    }
+
+    /**
+     * Rebuild the index from the database now.
+     */
+    public void rebuild() {
+        index.rebuild();
+    }
+
+    private Index build() {
+        long startTime = System.currentTimeMillis();
+
+        Map<Long, List<ProductFeatureText>> featuresByProduct = new HashMap<>();
+        for (ProductFeatureText feature : productRepository.findAllFeatureText()) {
+            featuresByProduct.computeIfAbsent(feature.getProductId(), id -> new ArrayList<>()).add(feature);
+        }
+
+        List<ProductText> products = productRepository.findAllText();
+        long[] productIds = new long[products.size()];
+        float[] lengths = new float[products.size()];
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        Map<String, Long> identifiers = new HashMap<>();
+        float totalLength = 0f;
+
+        for (int doc = 0; doc < products.size(); doc++) {
+            ProductText product = products.get(doc);
+            productIds[doc] = product.getId();
+
+            Map<String, Float> frequencies = new HashMap<>();
+            addField(frequencies, product.getName(), NAME_WEIGHT);
+            addField(frequencies, product.getSummary(), SUMMARY_WEIGHT);
+            addField(frequencies, product.getManufacturerName(), MANUFACTURER_WEIGHT);
+            addField(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+            addField(frequencies, product.getCode(), NAME_WEIGHT);
+
+            addIdentifier(identifiers, product.getCode(), product.getId());
+            addIdentifier(identifiers, product.getEan(), product.getId());
+
+            for (ProductFeatureText feature : featuresByProduct.getOrDefault(product.getId(), List.of())) {
+                addField(frequencies, feature.getAttributeName(), ATTRIBUTE_WEIGHT);
+                addField(frequencies, feature.getAttributeValue(), ATTRIBUTE_WEIGHT);
+                if (isIdentifierAttribute(feature.getAttributeName())) {
+                    addIdentifier(identifiers, feature.getAttributeValue(), product.getId());
+                }
+            }
+
+            float length = 0f;
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                builders.computeIfAbsent(entry.getKey(), term -> new PostingsBuilder()).add(doc, entry.getValue());
+                length += entry.getValue();
+            }
+            lengths[doc] = length;
+            totalLength += length;
+        }
+
+        Map<String, Postings> postings = new HashMap<>(builders.size() * 2);
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+        float averageLength = products.isEmpty() ? 1f : Math.max(totalLength / products.size(), 1f);
+
+        log.info("Lexical index built for {} products ({} terms, {} identifiers) in {}ms",
+                products.size(), postings.size(), identifiers.size(), System.currentTimeMillis() - startTime);
+
+        return new Index(products.size(), productIds, lengths, averageLength, postings, identifiers);
+    }
+
+    private static void addField(Map<String, Float> frequencies, String text, float weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Float::sum);
+        }
+    }
+
+    private static void addIdentifier(Map<String, Long> identifiers, String value, Long productId) {
+        String key = normalizeIdentifier(value);
+        if (!key.isEmpty()) {
+            identifiers.putIfAbsent(key, productId);
+        }
+    }
+
+    /**
+     * Attributes whose value identifies a single product, e.g. "Model Number" or "MPN".
+     */
+    private static boolean isIdentifierAttribute(String attributeName) {
+        if (attributeName == null) {
+            return false;
+        }
+        String name = attributeName.toLowerCase(Locale.ROOT);
+        return name.contains("model") || name.contains("mpn") || name.contains("sku")
+                || name.contains("part number") || name.contains("gtin");
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalizeIdentifier(String value) {
+        if (value == null) {
+            return "";
+        }
+        return IDENTIFIER_NOISE.matcher(value.trim().toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+
+    /**
+     * Documents containing one term, in ascending document order.
+     */
+    private static final class Postings {
+        private final int[] docs;
+        private final float[] frequencies;
+
+        private Postings(int[] docs, float[] frequencies) {
+            this.docs = docs;
+            this.frequencies = frequencies;
+        }
+    }
+
+    private static final class PostingsBuilder {
+        private int[] docs = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+
+        private void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size++] = frequency;
+        }
+
+        private Postings build() {
+            return new Postings(Arrays.copyOf(docs, size), Arrays.copyOf(frequencies, size));
+        }
+    }
+
+    /**
+     * Immutable index snapshot, swapped atomically on rebuild.
+     */
+    private static final class Index {
+        private final int documents;
+        private final long[] productIds;
+        private final float[] lengths;
+        private final float averageLength;
+        private final Map<String, Postings> postings;
+        private final Map<String, Long> identifiers;
+
+        private Index(int documents, long[] productIds, float[] lengths, float averageLength,
+                      Map<String, Postings> postings, Map<String, Long> identifiers) {
+            this.documents = documents;
+            this.productIds = productIds;
+            this.lengths = lengths;
+            this.averageLength = averageLength;
+            this.postings = postings;
+            this.identifiers = identifiers;
+        }
+    }
+}
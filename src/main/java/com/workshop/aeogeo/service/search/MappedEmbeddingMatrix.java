@@ -0,0 +1,220 @@
+package com.workshop.aeogeo.service.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped embedding matrix snapshot.
+ *
+ * File layout (little-endian):
+ * <pre>
+ * offset 0   header (64 bytes)
+ *            int magic "AEOV", int version, int rows, int dimension,
+ *            int normalized (0/1), int reserved, long createdAtMillis
+ * offset 64  matrix: rows x dimension float32, row-major
+ * then       product id table: rows x int64 (row -> product id)
+ * </pre>
+ *
+ * The matrix stays in the page cache, outside the GC-managed heap; only
+ * the row -> product id table is copied onto the heap. A single mapping
+ * is limited to 2GB, so the matrix is mapped in chunks of whole rows.
+ */
+public class MappedEmbeddingMatrix {
+
+    static final int MAGIC = 0x564F4541; // "AEOV" little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    private final int rows;
+    private final int dimension;
+    private final boolean normalized;
+    private final long createdAtMillis;
+    private final long[] productIds;
+    private final ByteBuffer[] chunks;
+    private final int rowsPerChunk;
+    private final int rowBytes;
+
+    private MappedEmbeddingMatrix(int rows, int dimension, boolean normalized, long createdAtMillis,
+                                  long[] productIds, ByteBuffer[] chunks, int rowsPerChunk) {
+        this.rows = rows;
+        this.dimension = dimension;
+        this.normalized = normalized;
+        this.createdAtMillis = createdAtMillis;
+        this.productIds = productIds;
+        this.chunks = chunks;
+        this.rowsPerChunk = rowsPerChunk;
+        this.rowBytes = dimension * Float.BYTES;
+    }
+
+    /**
+     * Map a snapshot written by EmbeddingMatrixWriter.
+     *
+     * @param file Snapshot file
+     * @return Mapped matrix
+     * @throws IOException if the file is missing or not a valid snapshot
+     */
+    public static MappedEmbeddingMatrix open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, file);
+            int rows = header.getRows();
+            int dimension = header.getDimension();
+            boolean normalized = header.isNormalized();
+            long createdAtMillis = header.getCreatedAtMillis();
+
+            long rowBytes = (long) dimension * Float.BYTES;
+            long matrixBytes = rows * rowBytes;
+
+            // Chunks of whole rows so a row never straddles two mappings
+            int rowsPerChunk = (int) Math.max(1, Integer.MAX_VALUE / Math.max(rowBytes, 1));
+            int chunkCount = rows == 0 ? 0 : (rows + rowsPerChunk - 1) / rowsPerChunk;
+            ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+            for (int c = 0; c < chunkCount; c++) {
+                long firstRow = (long) c * rowsPerChunk;
+                long chunkRows = Math.min(rowsPerChunk, rows - firstRow);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + firstRow * rowBytes, chunkRows * rowBytes);
+                chunks[c] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            long[] productIds = new long[rows];
+            ByteBuffer idTable = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + matrixBytes, (long) rows * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            idTable.asLongBuffer().get(productIds);
+
+            // The mappings stay valid after the channel is closed
+            return new MappedEmbeddingMatrix(rows, dimension, normalized, createdAtMillis,
+                    productIds, chunks, rowsPerChunk);
+        }
+    }
+
+    /**
+     * Read and validate a snapshot's header without mapping its rows,
+     * e.g. to decide whether the snapshot is still current.
+     *
+     * @param file Snapshot file
+     * @return Header fields
+     * @throws IOException if the file is missing or not a valid snapshot
+     */
+    public static Header readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readHeader(channel, file);
+        }
+    }
+
+    private static Header readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // read until the header is complete or the file ends
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not an embedding matrix snapshot (v" + VERSION + "): " + file);
+        }
+        int rows = header.getInt(8);
+        int dimension = header.getInt(12);
+        long matrixBytes = rows * (long) dimension * Float.BYTES;
+        if (channel.size() != HEADER_BYTES + matrixBytes + (long) rows * Long.BYTES) {
+            throw new IOException("Truncated embedding matrix snapshot: " + file);
+        }
+        return new Header(rows, dimension, header.getInt(16) == 1, header.getLong(24));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public boolean isNormalized() {
+        return normalized;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * Product id stored at a row.
+     */
+    public long productId(int row) {
+        return productIds[row];
+    }
+
+    /**
+     * Similarity of the query to a row: dot product for normalized
+     * snapshots, cosine otherwise. Reads the row in place.
+     */
+    public float similarity(SimilarityKernel kernel, float[] query, int row) {
+        ByteBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * rowBytes;
+        return normalized ? kernel.dot(query, chunk, offset) : kernel.cosine(query, chunk, offset);
+    }
+
+    /**
+     * Cosine similarity of the query to the first query.length dimensions
+     * of a row (truncated, Matryoshka-style embeddings); kernels iterate
+     * over the query's length. Reads the row in place.
+     */
+    public float prefixCosine(SimilarityKernel kernel, float[] query, int row) {
+        ByteBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * rowBytes;
+        return kernel.cosine(query, chunk, offset);
+    }
+
+    /**
+     * Copy a row onto the heap (for re-ranking or debugging).
+     */
+    public float[] row(int row) {
+        float[] vector = new float[dimension];
+        copyRow(row, vector);
+        return vector;
+    }
+
+    /**
+     * Copy a row into an existing array of at least dimension floats.
+     */
+    public void copyRow(int row, float[] into) {
+        ByteBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * rowBytes;
+        chunk.slice(offset, rowBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(into, 0, dimension);
+    }
+
+    /**
+     * Snapshot header fields.
+     */
+    public static final class Header {
+        private final int rows;
+        private final int dimension;
+        private final boolean normalized;
+        private final long createdAtMillis;
+
+        private Header(int rows, int dimension, boolean normalized, long createdAtMillis) {
+            this.rows = rows;
+            this.dimension = dimension;
+            this.normalized = normalized;
+            this.createdAtMillis = createdAtMillis;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getDimension() {
+            return dimension;
+        }
+
+        public boolean isNormalized() {
+            return normalized;
+        }
+
+        public long getCreatedAtMillis() {
+            return createdAtMillis;
+        }
+    }
+}
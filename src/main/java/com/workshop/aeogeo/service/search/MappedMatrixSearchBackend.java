@@ -0,0 +1,141 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Memory-mapped Matrix Search Backend.
+ *
+ * Scans a contiguous float32 embedding matrix mapped from disk (see
+ * MappedEmbeddingMatrix) with bounded top-k heaps, sharded across
+ * cores by ParallelTopKScanner. The vectors live in
+ * the OS page cache rather than the Java heap, and a new node starts
+ * serving by mapping an existing snapshot instead of reading every
+ * PGvector row through Hibernate. Snapshot lifecycle is handled by
+ * EmbeddingSnapshotStore.
+ *
+ * Batches of queries are scored as a blocked matrix product: each shard
+ * copies ROW_BLOCK rows at a time onto the heap and scores them against
+ * every query before moving on, so the matrix is read once per batch
+ * instead of once per query.
+ *
+ * Enable with: search.backend=mmap
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "mmap")
+@Slf4j
+public class MappedMatrixSearchBackend implements VectorSearchBackend {
+
+    /** Rows scored against all queries of a batch together (32 x 1536 floats = 192 KB) */
+    private static final int ROW_BLOCK = 32;
+
+    @Autowired
+    private EmbeddingSnapshotStore snapshotStore;
+
+    @Autowired
+    private ParallelTopKScanner scanner;
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshot() throws IOException {
+        snapshotStore.open();
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        MappedEmbeddingMatrix matrix = snapshotStore.getMatrix();
+        if (matrix == null || matrix.getDimension() != queryEmbedding.length) {
+            TopKCollector topK = new TopKCollector(limit, threshold);
+            snapshotStore.scoreDelta(queryEmbedding, topK, allowedIds);
+            return topK.toMatches();
+        }
+
+        TopKCollector topK = scanner.scan(matrix.getRows(), limit, threshold, (from, to, collector) -> {
+            for (int row = from; row < to; row++) {
+                long productId = matrix.productId(row);
+                if (ProductFilterIndex.accepts(allowedIds, productId) && !snapshotStore.isShadowed(row)) {
+                    collector.offer(productId, matrix.similarity(kernel, queryEmbedding, row));
+                }
+            }
+        });
+        snapshotStore.scoreDelta(queryEmbedding, topK, allowedIds);
+
+        return topK.toMatches();
+    }
+
+    @Override
+    public List<List<VectorMatch>> findNearestBatch(float[][] queryEmbeddings, int limit, double threshold,
+                                                    BitSet allowedIds) {
+        MappedEmbeddingMatrix matrix = snapshotStore.getMatrix();
+        if (matrix == null || queryEmbeddings.length == 0 || matrix.getDimension() != queryEmbeddings[0].length) {
+            return VectorSearchBackend.super.findNearestBatch(queryEmbeddings, limit, threshold, allowedIds);
+        }
+
+        int dimension = matrix.getDimension();
+        boolean normalized = matrix.isNormalized();
+        float[] queryNorms = new float[queryEmbeddings.length];
+        for (int q = 0; q < queryEmbeddings.length; q++) {
+            queryNorms[q] = normalized ? 1f : kernel.norm(queryEmbeddings[q]);
+        }
+
+        TopKCollector[] topK = scanner.scanBatch(matrix.getRows(), queryEmbeddings.length, limit, threshold,
+                (from, to, collectors) -> {
+                    float[][] block = new float[ROW_BLOCK][dimension];
+                    long[] blockIds = new long[ROW_BLOCK];
+                    float[] blockNorms = new float[ROW_BLOCK];
+                    int row = from;
+                    while (row < to) {
+                        // Gather the next block of rows that pass the filter
+                        int count = 0;
+                        for (; row < to && count < ROW_BLOCK; row++) {
+                            long productId = matrix.productId(row);
+                            if (ProductFilterIndex.accepts(allowedIds, productId) && !snapshotStore.isShadowed(row)) {
+                                matrix.copyRow(row, block[count]);
+                                blockIds[count] = productId;
+                                blockNorms[count] = normalized ? 1f : kernel.norm(block[count]);
+                                count++;
+                            }
+                        }
+                        for (int q = 0; q < queryEmbeddings.length; q++) {
+                            float[] query = queryEmbeddings[q];
+                            TopKCollector collector = collectors[q];
+                            for (int b = 0; b < count; b++) {
+                                float score = kernel.dot(query, block[b]);
+                                if (!normalized) {
+                                    float denominator = queryNorms[q] * blockNorms[b];
+                                    score = denominator == 0f ? 0f : score / denominator;
+                                }
+                                collector.offer(blockIds[b], score);
+                            }
+                        }
+                    }
+                });
+        snapshotStore.scoreDelta(queryEmbeddings, topK, allowedIds);
+
+        List<List<VectorMatch>> results = new ArrayList<>(topK.length);
+        for (TopKCollector collector : topK) {
+            results.add(collector.toMatches());
+        }
+        return results;
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        snapshotStore.put(productId, embedding);
+    }
+
+    @Override
+    public String getBackendName() {
+        return "mmap";
+    }
+}
@@ -0,0 +1,190 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.service.embedding.EmbeddingProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matryoshka (truncated-dimension) Search Backend.
+ *
+ * Models trained with Matryoshka representation learning (e.g. OpenAI
+ * text-embedding-3) front-load information, so the first N dimensions
+ * of an embedding are a usable embedding on their own. Two-phase search:
+ * 1. Scan the first coarse-dimensions of every product embedding, kept
+ *    re-normalized on the heap (256 of 1536 dims = 6x less to read and
+ *    multiply), and shortlist the best candidates.
+ * 2. Re-score the shortlist on the first full-dimensions of the
+ *    memory-mapped float32 rows (EmbeddingSnapshotStore) and apply the
+ *    threshold and limit to those scores.
+ *
+ * Dimensions are configured globally and can be overridden per embedding
+ * provider (search.matryoshka.providers.&lt;provider&gt;.*). They are
+ * validated against EmbeddingProvider.getEmbeddingDimension() at startup.
+ *
+ * Enable with: search.backend=matryoshka
+ *
+ * Tuning (search.matryoshka.*):
+ * - coarse-dimensions: prefix length of the first pass (default 256)
+ * - full-dimensions: prefix length used for re-ranking, 0 = all (default 0)
+ * - rerank-candidates: shortlist size (default 200)
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "matryoshka")
+@Slf4j
+public class MatryoshkaSearchBackend implements VectorSearchBackend {
+
+    private static final String PREFIX = "search.matryoshka.";
+
+    @Autowired
+    private EmbeddingSnapshotStore snapshotStore;
+
+    @Autowired
+    private ParallelTopKScanner scanner;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private Environment environment;
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private volatile CoarseRows rows;
+    private int coarseDimensions;
+    private int fullDimensions;
+    private int rerankCandidates;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() throws IOException {
+        long startTime = System.currentTimeMillis();
+        resolveDimensions();
+
+        MappedEmbeddingMatrix matrix = snapshotStore.open();
+        if (matrix.getDimension() != embeddingProvider.getEmbeddingDimension()) {
+            log.warn("Embedding snapshot has {} dimensions but provider {} produces {}; only new embeddings "
+                            + "will be searchable until the snapshot is rebuilt",
+                    matrix.getDimension(), embeddingProvider.getProviderName(),
+                    embeddingProvider.getEmbeddingDimension());
+        }
+
+        float[][] prefixes = new float[matrix.getRows()][];
+        float[] vector = new float[matrix.getDimension()];
+        for (int row = 0; row < matrix.getRows(); row++) {
+            matrix.copyRow(row, vector);
+            prefixes[row] = SimilarityKernels.normalize(Arrays.copyOf(vector, coarseDimensions));
+        }
+        rows = new CoarseRows(matrix, prefixes);
+
+        log.info("Matryoshka index built for {} embeddings ({} of {} dims, {} KB on heap vs {} KB float32) in {}ms",
+                matrix.getRows(), coarseDimensions, matrix.getDimension(),
+                (long) matrix.getRows() * coarseDimensions * Float.BYTES / 1024,
+                (long) matrix.getRows() * matrix.getDimension() * Float.BYTES / 1024,
+                System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        CoarseRows current = rows;
+        TopKCollector topK = new TopKCollector(limit, threshold);
+        if (current == null || queryEmbedding.length < fullDimensions) {
+            return topK.toMatches();
+        }
+        float[] fullQuery = queryEmbedding.length == fullDimensions
+                ? queryEmbedding : Arrays.copyOf(queryEmbedding, fullDimensions);
+
+        if (current.matrix.getDimension() == queryEmbedding.length) {
+            // Phase 1: cosine on the re-normalized leading dimensions, rows as ids
+            float[] coarseQuery = SimilarityKernels.normalize(Arrays.copyOf(queryEmbedding, coarseDimensions));
+            TopKCollector shortlist = scanner.scan(current.prefixes.length, Math.max(rerankCandidates, limit),
+                    Float.NEGATIVE_INFINITY, (from, to, collector) -> {
+                for (int row = from; row < to; row++) {
+                    if (ProductFilterIndex.accepts(allowedIds, current.matrix.productId(row))
+                            && !snapshotStore.isShadowed(row)) {
+                        collector.offer(row, kernel.dot(coarseQuery, current.prefixes[row]));
+                    }
+                }
+            });
+
+            // Phase 2: re-rank on the full (or configured) dimensions
+            for (long row : shortlist.ids()) {
+                int r = (int) row;
+                topK.offer(current.matrix.productId(r), current.matrix.prefixCosine(kernel, fullQuery, r));
+            }
+        }
+
+        // Embeddings written since the snapshot, scored on the same dimensions as the re-rank
+        for (Map.Entry<Long, float[]> entry : snapshotStore.getDelta().entrySet()) {
+            float[] vector = entry.getValue();
+            if (vector.length == queryEmbedding.length && ProductFilterIndex.accepts(allowedIds, entry.getKey())) {
+                topK.offer(entry.getKey(), kernel.cosine(fullQuery, vector));
+            }
+        }
+
+        return topK.toMatches();
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        snapshotStore.put(productId, embedding);
+    }
+
+    @Override
+    public String getBackendName() {
+        return "matryoshka";
+    }
+
+    /**
+     * Resolve coarse/full dimensions for the active provider and validate them.
+     */
+    private void resolveDimensions() {
+        String provider = embeddingProvider.getProviderName();
+        int providerDimension = embeddingProvider.getEmbeddingDimension();
+
+        coarseDimensions = property(provider, "coarse-dimensions", 256);
+        int configuredFull = property(provider, "full-dimensions", 0);
+        fullDimensions = configuredFull > 0 ? configuredFull : providerDimension;
+        rerankCandidates = property(provider, "rerank-candidates", 200);
+
+        if (fullDimensions > providerDimension) {
+            throw new IllegalStateException("search.matryoshka full-dimensions " + fullDimensions
+                    + " exceeds the " + providerDimension + " dimensions of provider " + provider);
+        }
+        if (coarseDimensions <= 0 || coarseDimensions >= fullDimensions) {
+            throw new IllegalStateException("search.matryoshka coarse-dimensions must be between 1 and "
+                    + (fullDimensions - 1) + " for provider " + provider + ", got " + coarseDimensions);
+        }
+        log.info("Matryoshka search for provider {}: coarse {} dims, re-rank {} of {} dims, {} candidates",
+                provider, coarseDimensions, fullDimensions, providerDimension, rerankCandidates);
+    }
+
+    /**
+     * search.matryoshka.providers.&lt;provider&gt;.&lt;name&gt;, falling back to search.matryoshka.&lt;name&gt;.
+     */
+    private int property(String provider, String name, int defaultValue) {
+        Integer global = environment.getProperty(PREFIX + name, Integer.class, defaultValue);
+        return environment.getProperty(PREFIX + "providers." + provider + "." + name, Integer.class, global);
+    }
+
+    /**
+     * Immutable coarse view of one snapshot, swapped atomically on rebuild.
+     */
+    private static final class CoarseRows {
+        private final MappedEmbeddingMatrix matrix;
+        private final float[][] prefixes;
+
+        private CoarseRows(MappedEmbeddingMatrix matrix, float[][] prefixes) {
+            this.matrix = matrix;
+            this.prefixes = prefixes;
+        }
+    }
+}
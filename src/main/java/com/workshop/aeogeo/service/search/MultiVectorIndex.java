@@ -0,0 +1,250 @@
+package com.workshop.aeogeo.service.search;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * In-memory index of product chunk embeddings for multi-vector search
+ * (SearchMode.MULTI_VECTOR).
+ *
+ * Each product is represented by several chunk vectors (header,
+ * description chunks, attribute block; see ProductChunkModel). Chunks are
+ * kept as int8 scalar-quantized codes (1 byte per dimension, 4x smaller
+ * than float32), so scanning five chunks per product reads about as much
+ * memory as scanning one float32 embedding. Two phases:
+ * 1. Scan every chunk into a bounded chunk-level top-k. Chunks below the
+ *    threshold are dropped (a product's score never exceeds its best
+ *    chunk), and once the heap is full each further chunk costs one
+ *    comparison against its minimum.
+ * 2. Aggregate all chunks of the shortlisted products:
+ *    - max-sim: best chunk similarity
+ *    - sum-top-n: sum of the top-n chunk similarities divided by n, so the
+ *      score stays on the cosine scale and the threshold keeps its meaning
+ *
+ * Chunks are stored unit-length, so scores are int8 approximations of the
+ * cosine. Rebuilt from product_chunks on startup; call rebuild() after
+ * generating chunks for more products.
+ *
+ * Tuning (search.multi-vector.*):
+ * - aggregation: max-sim | sum-top-n (default max-sim)
+ * - top-n: chunks summed by sum-top-n (default 3)
+ * - chunk-candidates: chunk shortlist size (default 200)
+ */
+@Component
+@Slf4j
+public class MultiVectorIndex {
+
+    @Autowired
+    private ProductEmbeddingLoader embeddingLoader;
+
+    @Autowired
+    private ParallelTopKScanner scanner;
+
+    @Value("${search.multi-vector.aggregation:max-sim}")
+    private String aggregationName;
+
+    @Value("${search.multi-vector.top-n:3}")
+    private int topN;
+
+    @Value("${search.multi-vector.chunk-candidates:200}")
+    private int chunkCandidates;
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private Aggregation aggregation;
+    private volatile Chunks chunks;
+
+    @PostConstruct
+    public void initialize() {
+        aggregation = Aggregation.fromValue(aggregationName);
+        if (topN < 1) {
+            throw new IllegalStateException("search.multi-vector.top-n must be at least 1, got " + topN);
+        }
+    }
+
+    /**
+     * Load and quantize every chunk embedding, replacing the current index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+
+        List<Long> productIds = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        embeddingLoader.forEachChunkEmbedding((productId, embedding) -> {
+            productIds.add(productId);
+            vectors.add(SimilarityKernels.normalize(embedding));
+        });
+        if (vectors.isEmpty()) {
+            log.info("No product chunk embeddings found, multi-vector search falls back to product embeddings");
+            chunks = null;
+            return;
+        }
+
+        int dimension = vectors.get(0).length;
+        ScalarQuantizer.Trainer trainer = new ScalarQuantizer.Trainer(dimension);
+        vectors.forEach(trainer::observe);
+        ScalarQuantizer quantizer = trainer.build();
+
+        long[] ids = new long[vectors.size()];
+        byte[][] codes = new byte[vectors.size()][];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = productIds.get(row);
+            codes[row] = quantizer.encode(vectors.get(row));
+        }
+        chunks = new Chunks(quantizer, ids, codes);
+
+        log.info("Multi-vector index built for {} chunks of {} products ({} aggregation, {} KB codes) in {}ms",
+                ids.length, Arrays.stream(ids).distinct().count(), aggregation.value,
+                (long) ids.length * dimension / 1024, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Whether any chunks are indexed.
+     */
+    public boolean isEmpty() {
+        return chunks == null;
+    }
+
+    /**
+     * Find the products whose chunks best match the query.
+     *
+     * @param queryEmbedding Query vector
+     * @param limit Maximum number of products
+     * @param threshold Minimum aggregated similarity
+     * @param allowedIds Product ids resolved by ProductFilterIndex, or null
+     * @return Matches ordered by descending aggregated similarity
+     */
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        Chunks current = chunks;
+        TopKCollector topK = new TopKCollector(limit, threshold);
+        if (current == null || current.quantizer.getDimension() != queryEmbedding.length) {
+            return topK.toMatches();
+        }
+        float[] scaledQuery = new float[queryEmbedding.length];
+        float offset = current.quantizer.prepareQuery(SimilarityKernels.normalize(queryEmbedding), scaledQuery);
+
+        // Phase 1: chunk-level top-k, rows as ids
+        TopKCollector shortlist = scanner.scan(current.productIds.length, Math.max(chunkCandidates, limit),
+                threshold, (from, to, collector) -> {
+            for (int row = from; row < to; row++) {
+                if (ProductFilterIndex.accepts(allowedIds, current.productIds[row])) {
+                    collector.offer(row, offset + kernel.dot(scaledQuery, current.codes[row]));
+                }
+            }
+        });
+
+        // Phase 2: aggregate every chunk of each shortlisted product
+        Set<Long> aggregated = new HashSet<>();
+        for (long row : shortlist.ids()) {
+            long productId = current.productIds[(int) row];
+            if (aggregated.add(productId)) {
+                topK.offer(productId, aggregate(current, (int) row, scaledQuery, offset));
+            }
+        }
+        return topK.toMatches();
+    }
+
+    /**
+     * findNearest for each query.
+     */
+    public List<List<VectorMatch>> findNearestBatch(float[][] queryEmbeddings, int limit, double threshold,
+                                                    BitSet allowedIds) {
+        List<List<VectorMatch>> results = new ArrayList<>(queryEmbeddings.length);
+        for (float[] queryEmbedding : queryEmbeddings) {
+            results.add(findNearest(queryEmbedding, limit, threshold, allowedIds));
+        }
+        return results;
+    }
+
+    /**
+     * Aggregated score of the product owning the given chunk row.
+     * Rows are grouped by product, so its chunks are the run around that row.
+     */
+    private float aggregate(Chunks current, int row, float[] scaledQuery, float offset) {
+        long productId = current.productIds[row];
+        int first = row;
+        while (first > 0 && current.productIds[first - 1] == productId) {
+            first--;
+        }
+
+        float best = Float.NEGATIVE_INFINITY;
+        float[] top = aggregation == Aggregation.SUM_TOP_N ? new float[topN] : null;
+        int kept = 0;
+        for (int r = first; r < current.productIds.length && current.productIds[r] == productId; r++) {
+            float score = offset + kernel.dot(scaledQuery, current.codes[r]);
+            if (top == null) {
+                best = Math.max(best, score);
+                continue;
+            }
+            // Keep the n best scores in descending order
+            int position = kept < topN ? kept++ : topN;
+            while (position > 0 && top[position - 1] < score) {
+                if (position < topN) {
+                    top[position] = top[position - 1];
+                }
+                position--;
+            }
+            if (position < topN) {
+                top[position] = score;
+            }
+        }
+        if (top == null) {
+            return best;
+        }
+
+        float sum = 0f;
+        for (int i = 0; i < kept; i++) {
+            sum += top[i];
+        }
+        return sum / topN;
+    }
+
+    private enum Aggregation {
+        MAX_SIM("max-sim"),
+        SUM_TOP_N("sum-top-n");
+
+        private final String value;
+
+        Aggregation(String value) {
+            this.value = value;
+        }
+
+        private static Aggregation fromValue(String value) {
+            String normalized = value.trim().toLowerCase(Locale.ROOT);
+            for (Aggregation aggregation : values()) {
+                if (aggregation.value.equals(normalized)) {
+                    return aggregation;
+                }
+            }
+            throw new IllegalStateException("search.multi-vector.aggregation must be max-sim or sum-top-n, got " + value);
+        }
+    }
+
+    /**
+     * Immutable quantized chunks, grouped by product id; swapped atomically on rebuild.
+     */
+    private static final class Chunks {
+        private final ScalarQuantizer quantizer;
+        private final long[] productIds;
+        private final byte[][] codes;
+
+        private Chunks(ScalarQuantizer quantizer, long[] productIds, byte[][] codes) {
+            this.quantizer = quantizer;
+            this.productIds = productIds;
+            this.codes = codes;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.workshop.aeogeo.service.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join top-k scan over row ranges.
+ *
+ * The row space is split recursively into shards; each shard is scanned
+ * into its own bounded TopKCollector of size k and the heaps are merged
+ * pairwise on the way back up. Allocation scales with k x shards, not
+ * with catalog size, and latency drops with core count.
+ *
+ * Small scans (fewer than two shards' worth of rows) run inline on the
+ * calling thread to avoid fork-join overhead.
+ *
+ * scanBatch() shards the same way for many queries at once: each shard
+ * keeps one collector per query, so a shard can score a block of rows
+ * against every query while the rows are in cache.
+ *
+ * Configuration (search.scan.*):
+ * - parallelism: worker threads, 0 = available processors, 1 = sequential
+ * - min-shard-rows: smallest shard worth forking (default 16384)
+ */
+@Component
+@Slf4j
+public class ParallelTopKScanner {
+
+    @Value("${search.scan.parallelism:0}")
+    private int parallelism;
+
+    @Value("${search.scan.min-shard-rows:16384}")
+    private int minShardRows;
+
+    private ForkJoinPool pool;
+    private int threads;
+
+    /**
+     * Scores the rows [fromRow, toRow) into a collector.
+     */
+    @FunctionalInterface
+    public interface RangeScan {
+        void scan(int fromRow, int toRow, TopKCollector collector);
+    }
+
+    /**
+     * Scores the rows [fromRow, toRow) for every query, into collectors[query].
+     */
+    @FunctionalInterface
+    public interface BatchRangeScan {
+        void scan(int fromRow, int toRow, TopKCollector[] collectors);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+        }
+        log.info("Top-k scanner: {} thread(s), min shard {} rows", threads, minShardRows);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Scan rows [0, rows) and return the k best entries.
+     *
+     * @param rows Number of rows
+     * @param k Entries kept
+     * @param threshold Minimum score
+     * @param scan Scores a row range into a collector; called concurrently for disjoint ranges
+     * @return Merged collector
+     */
+    public TopKCollector scan(int rows, int k, double threshold, RangeScan scan) {
+        if (pool == null || rows < 2 * minShardRows) {
+            TopKCollector collector = new TopKCollector(k, threshold);
+            scan.scan(0, rows, collector);
+            return collector;
+        }
+        // A few shards per thread so uneven shards still balance
+        int shardRows = Math.max(minShardRows, rows / (threads * 4));
+        return pool.invoke(new ShardTask(0, rows, shardRows, k, threshold, scan));
+    }
+
+    /**
+     * Scan rows [0, rows) for a batch of queries and return the k best entries per query.
+     *
+     * @param rows Number of rows
+     * @param queries Number of queries
+     * @param k Entries kept per query
+     * @param threshold Minimum score
+     * @param scan Scores a row range for all queries; called concurrently for disjoint ranges
+     * @return Merged collectors, indexed by query
+     */
+    public TopKCollector[] scanBatch(int rows, int queries, int k, double threshold, BatchRangeScan scan) {
+        if (pool == null || rows < 2 * minShardRows) {
+            TopKCollector[] collectors = newCollectors(queries, k, threshold);
+            scan.scan(0, rows, collectors);
+            return collectors;
+        }
+        int shardRows = Math.max(minShardRows, rows / (threads * 4));
+        return pool.invoke(new BatchShardTask(0, rows, shardRows, queries, k, threshold, scan));
+    }
+
+    private static TopKCollector[] newCollectors(int queries, int k, double threshold) {
+        TopKCollector[] collectors = new TopKCollector[queries];
+        for (int q = 0; q < queries; q++) {
+            collectors[q] = new TopKCollector(k, threshold);
+        }
+        return collectors;
+    }
+
+    private static final class ShardTask extends RecursiveTask<TopKCollector> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int shardRows;
+        private final int k;
+        private final double threshold;
+        private final RangeScan scan;
+
+        private ShardTask(int from, int to, int shardRows, int k, double threshold, RangeScan scan) {
+            this.from = from;
+            this.to = to;
+            this.shardRows = shardRows;
+            this.k = k;
+            this.threshold = threshold;
+            this.scan = scan;
+        }
+
+        @Override
+        protected TopKCollector compute() {
+            if (to - from <= shardRows) {
+                TopKCollector collector = new TopKCollector(k, threshold);
+                scan.scan(from, to, collector);
+                return collector;
+            }
+            int middle = (from + to) >>> 1;
+            ShardTask left = new ShardTask(from, middle, shardRows, k, threshold, scan);
+            ShardTask right = new ShardTask(middle, to, shardRows, k, threshold, scan);
+            left.fork();
+            TopKCollector merged = right.compute();
+            merged.merge(left.join());
+            return merged;
+        }
+    }
+
+    private static final class BatchShardTask extends RecursiveTask<TopKCollector[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int shardRows;
+        private final int queries;
+        private final int k;
+        private final double threshold;
+        private final BatchRangeScan scan;
+
+        private BatchShardTask(int from, int to, int shardRows, int queries, int k, double threshold,
+                               BatchRangeScan scan) {
+            this.from = from;
+            this.to = to;
+            this.shardRows = shardRows;
+            this.queries = queries;
+            this.k = k;
+            this.threshold = threshold;
+            this.scan = scan;
+        }
+
+        @Override
+        protected TopKCollector[] compute() {
+            if (to - from <= shardRows) {
+                TopKCollector[] collectors = newCollectors(queries, k, threshold);
+                scan.scan(from, to, collectors);
+                return collectors;
+            }
+            int middle = (from + to) >>> 1;
+            BatchShardTask left = new BatchShardTask(from, middle, shardRows, queries, k, threshold, scan);
+            BatchShardTask right = new BatchShardTask(middle, to, shardRows, queries, k, threshold, scan);
+            left.fork();
+            TopKCollector[] merged = right.compute();
+            TopKCollector[] other = left.join();
+            for (int q = 0; q < queries; q++) {
+                merged[q].merge(other[q]);
+            }
+            return merged;
+        }
+    }
+}
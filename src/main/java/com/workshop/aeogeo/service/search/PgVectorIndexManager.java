@@ -0,0 +1,154 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.dto.StorageConversion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the approximate nearest-neighbour index on products.embedding.
+ *
+ * Without an index every k-NN query is a sequential scan that computes the
+ * distance to every row. Supported index types (search.pgvector.index.type):
+ * - hnsw: best recall/latency, slower to build (default)
+ * - ivfflat: faster to build, needs data present to train its lists
+ * - none: leave the column unindexed (small catalogs, exact results)
+ *
+ * Runs after startup so that IVFFlat lists are trained on the embeddings
+ * written by EmbeddingGenerationService. Switching type drops the managed
+ * index of the other type.
+ *
+ * The index operator class follows the column type:
+ * - vector: float32 per dimension (default), vector_cosine_ops
+ * - halfvec: float16 per dimension (pgvector 0.7+), half the table, TOAST
+ *   and index size, halfvec_cosine_ops
+ * pgvector casts vector to halfvec implicitly, so the k-NN queries
+ * (CAST(:queryEmbedding AS vector)) and the ?::vector write on
+ * ProductModel.embedding work unchanged against a halfvec column.
+ *
+ * The column type is never changed at startup. convertStorage() is an
+ * explicit maintenance step (POST /api/admin/search/pgvector/storage):
+ * ALTER COLUMN TYPE rewrites the whole table under an ACCESS EXCLUSIVE
+ * lock, and converting to halfvec rounds every stored embedding for
+ * good; converting back to vector does not restore the precision.
+ */
+@Component
+@Slf4j
+public class PgVectorIndexManager {
+
+    static final String HNSW_INDEX = "idx_products_embedding_hnsw";
+    static final String IVFFLAT_INDEX = "idx_products_embedding_ivfflat";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Value("${search.pgvector.index.type:hnsw}")
+    private String indexType;
+
+    @Value("${search.pgvector.index.m:16}")
+    private int m;
+
+    @Value("${search.pgvector.index.ef-construction:64}")
+    private int efConstruction;
+
+    @Value("${search.pgvector.index.lists:100}")
+    private int lists;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        try {
+            String operatorClass = columnType() + "_cosine_ops";
+            switch (indexType.toLowerCase()) {
+                case "hnsw" -> {
+                    jdbcTemplate.execute("DROP INDEX IF EXISTS " + IVFFLAT_INDEX);
+                    jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + HNSW_INDEX + " ON products " +
+                            "USING hnsw (embedding " + operatorClass + ") " +
+                            "WITH (m = " + m + ", ef_construction = " + efConstruction + ")");
+                    log.info("pgvector HNSW index ready ({}, m={}, ef_construction={})", operatorClass, m,
+                            efConstruction);
+                }
+                case "ivfflat" -> {
+                    jdbcTemplate.execute("DROP INDEX IF EXISTS " + HNSW_INDEX);
+                    jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + IVFFLAT_INDEX + " ON products " +
+                            "USING ivfflat (embedding " + operatorClass + ") " +
+                            "WITH (lists = " + lists + ")");
+                    log.info("pgvector IVFFlat index ready ({}, lists={})", operatorClass, lists);
+                }
+                case "none" -> {
+                    jdbcTemplate.execute("DROP INDEX IF EXISTS " + HNSW_INDEX);
+                    jdbcTemplate.execute("DROP INDEX IF EXISTS " + IVFFLAT_INDEX);
+                    log.info("pgvector index disabled, k-NN queries will scan the products table");
+                }
+                default -> log.warn("Unknown search.pgvector.index.type '{}', expected hnsw, ivfflat or none",
+                        indexType);
+            }
+        } catch (Exception e) {
+            log.error("Failed to create pgvector index on products.embedding: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Convert products.embedding to another storage type and rebuild the index.
+     *
+     * Blocks reads and writes of the products table for the whole rewrite;
+     * run it in a maintenance window. Converting to halfvec is lossy.
+     *
+     * @param target "vector" or "halfvec"
+     * @return Conversion result
+     * @throws IllegalArgumentException if target is not a supported type
+     */
+    public synchronized StorageConversion convertStorage(String target) {
+        String type = target.toLowerCase();
+        if (!type.equals("vector") && !type.equals("halfvec")) {
+            throw new IllegalArgumentException("Unsupported storage type '" + target + "', expected vector or halfvec");
+        }
+        String column = columnDefinition();
+        String previous = typeName(column);
+        if (type.equals(previous)) {
+            return new StorageConversion(previous, type, false, 0);
+        }
+
+        long startTime = System.currentTimeMillis();
+        int paren = column.indexOf('(');
+        String dimensions = paren < 0 ? "" : column.substring(paren);
+        // Managed indexes use the old type's operator class and would block the rewrite
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + HNSW_INDEX);
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + IVFFLAT_INDEX);
+        jdbcTemplate.execute("ALTER TABLE products ALTER COLUMN embedding TYPE " + type + dimensions +
+                " USING embedding::" + type + dimensions);
+        ensureIndex();
+        // Stored embeddings (and so every score) changed
+        catalogVersion.increment();
+
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("Converted products.embedding from {} to {}{} in {}ms", column, type, dimensions, duration);
+        return new StorageConversion(previous, type, true, duration);
+    }
+
+    /**
+     * Current storage type of products.embedding ("vector" or "halfvec").
+     */
+    public String columnType() {
+        return typeName(columnDefinition());
+    }
+
+    /**
+     * Column type with its dimension, e.g. "vector(1536)" or "halfvec(1536)".
+     */
+    private String columnDefinition() {
+        return jdbcTemplate.queryForObject("SELECT format_type(atttypid, atttypmod) FROM pg_attribute " +
+                "WHERE attrelid = 'products'::regclass AND attname = 'embedding'", String.class);
+    }
+
+    private static String typeName(String column) {
+        int paren = column.indexOf('(');
+        return paren < 0 ? column : column.substring(0, paren);
+    }
+}
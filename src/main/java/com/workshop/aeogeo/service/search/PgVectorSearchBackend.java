@@ -0,0 +1,159 @@
+package com.workshop.aeogeo.service.search;
+
+import com.pgvector.PGvector;
+import com.workshop.aeogeo.repository.ProductRepository;
+import com.workshop.aeogeo.repository.ProductSimilarity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * pgvector Search Backend - Default.
+ *
+ * Pushes the cosine-distance ordering, threshold and LIMIT into Postgres
+ * (see ProductRepository.findNearestByEmbedding), so only the top-k ids
+ * cross the wire. With the index created by PgVectorIndexManager the
+ * query cost stays roughly flat as the catalog grows.
+ *
+ * Filtered searches depend on how many products the filter resolved by
+ * ProductFilterIndex leaves:
+ * - fewer than filtered-exact-below: the ids are sent as a bigint[],
+ *   fetched by primary key and scored exactly
+ * - otherwise: the filter is sent as a bitmap (bytea, one bit per product
+ *   id) and tested on the rows the vector index returns. Postgres applies
+ *   it after the index scan, so hnsw.ef_search is raised to about
+ *   limit / selectivity (at most 1000) to keep enough candidates inside
+ *   the filter. If the scan still returns fewer than limit rows, the
+ *   filtered products are scored exactly instead.
+ *
+ * Index recall/speed knobs are applied per transaction:
+ * - hnsw.ef_search: candidate list size for HNSW scans, raised to limit
+ *   (at most 1000)
+ * - ivfflat.probes: number of lists scanned for IVFFlat
+ * - iterative-scan (pgvector 0.8+): let filtered index scans continue
+ *   past the first candidate list (hnsw strict_order, ivfflat relaxed_order)
+ *
+ * Tuning (search.pgvector.*):
+ * - ef-search: default 40
+ * - probes: default 10
+ * - filtered-exact-below: default 2000
+ * - iterative-scan: default false
+ */
+@Service
+@ConditionalOnProperty(
+    name = "search.backend",
+    havingValue = "pgvector",
+    matchIfMissing = true // This is the default
+)
+@Slf4j
+public class PgVectorSearchBackend implements VectorSearchBackend {
+
+    /** Largest hnsw.ef_search pgvector accepts. */
+    private static final int MAX_EF_SEARCH = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductFilterIndex filterIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${search.pgvector.ef-search:40}")
+    private int efSearch;
+
+    @Value("${search.pgvector.probes:10}")
+    private int probes;
+
+    @Value("${search.pgvector.filtered-exact-below:2000}")
+    private int filteredExactBelow;
+
+    @Value("${search.pgvector.iterative-scan:false}")
+    private boolean iterativeScan;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        // SET LOCAL only lasts until the end of this transaction
+        jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + Math.min(MAX_EF_SEARCH, Math.max(efSearch, limit)));
+        jdbcTemplate.execute("SET LOCAL ivfflat.probes = " + probes);
+
+        String vector = new PGvector(queryEmbedding).getValue();
+        double maxDistance = 1.0 - threshold;
+
+        List<ProductSimilarity> rows;
+        if (allowedIds == null) {
+            rows = productRepository.findNearestByEmbedding(vector, maxDistance, limit);
+        } else if (allowedIds.cardinality() < filteredExactBelow) {
+            rows = productRepository.findNearestExactWithin(vector, maxDistance, limit, toArrayLiteral(allowedIds));
+        } else {
+            rows = findNearestMatching(vector, maxDistance, limit, allowedIds);
+        }
+
+        return rows.stream()
+                .map(row -> new VectorMatch(row.getId(), row.getSimilarity()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String getBackendName() {
+        return "pgvector";
+    }
+
+    /**
+     * Index search for a large filter, with an exact fallback if the index
+     * candidates run out before limit products inside the filter are found.
+     */
+    private List<ProductSimilarity> findNearestMatching(String vector, double maxDistance, int limit,
+                                                        BitSet allowedIds) {
+        double selectivity = (double) allowedIds.cardinality()
+                / Math.max(allowedIds.cardinality(), filterIndex.catalogSize());
+        int filteredEfSearch = (int) Math.min(MAX_EF_SEARCH,
+                Math.max(Math.max(efSearch, limit), Math.ceil(limit / selectivity)));
+        jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + filteredEfSearch);
+        if (iterativeScan) {
+            jdbcTemplate.execute("SET LOCAL hnsw.iterative_scan = strict_order");
+            jdbcTemplate.execute("SET LOCAL ivfflat.iterative_scan = relaxed_order");
+        }
+
+        byte[] bitmap = allowedIds.toByteArray();
+        long bits = (long) bitmap.length * Byte.SIZE;
+        List<ProductSimilarity> rows =
+                productRepository.findNearestByEmbeddingMatching(vector, maxDistance, limit, bitmap, bits);
+        if (rows.size() < limit) {
+            log.debug("Filtered index scan returned {} of {} rows (ef_search={}), scoring the filter exactly",
+                    rows.size(), limit, filteredEfSearch);
+            rows = productRepository.findNearestExactMatching(vector, maxDistance, limit, bitmap, bits);
+        } else if (iterativeScan) {
+            // ivfflat relaxed_order may return rows slightly out of order
+            rows = new ArrayList<>(rows);
+            rows.sort(Comparator.comparingDouble(ProductSimilarity::getSimilarity).reversed());
+        }
+        return rows;
+    }
+
+    /**
+     * Render a filter bitmap as a Postgres bigint[] literal, e.g. "{1,5,9}".
+     */
+    private static String toArrayLiteral(BitSet ids) {
+        StringBuilder literal = new StringBuilder(ids.cardinality() * 6 + 2).append('{');
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            if (literal.length() > 1) {
+                literal.append(',');
+            }
+            literal.append(id);
+        }
+        return literal.append('}').toString();
+    }
+}
@@ -0,0 +1,324 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.dto.PqIndexStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Product Quantization Search Backend.
+ *
+ * For catalogs that do not fit on the heap as float32: each embedding is
+ * stored as m one-byte centroid codes (48 bytes for 1536 dims with the
+ * default m = 48, vs 6 KB float32) and scored with ADC lookup tables
+ * (see ProductQuantizer). Scores are approximate.
+ *
+ * Build (on startup), streaming from pgvector twice:
+ * 1. Reservoir-sample search.pq.training-sample vectors and train the codebooks
+ * 2. Encode every product with the trained codebooks
+ * The float32 sample is dropped once the codebooks are trained, so only
+ * codes and codebooks stay on the heap. New embeddings are encoded with
+ * the existing codebooks on write.
+ *
+ * Recall@k and bytes per vector are measured on demand through
+ * GET /api/admin/search/pq.
+ *
+ * Enable with: search.backend=pq
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "pq")
+@Slf4j
+public class PqSearchBackend implements VectorSearchBackend {
+
+    @Autowired
+    private ProductEmbeddingLoader embeddingLoader;
+
+    @Autowired
+    private ParallelTopKScanner scanner;
+
+    @Value("${search.pq.subspaces:48}")
+    private int subspaces;
+
+    @Value("${search.pq.training-sample:20000}")
+    private int trainingSampleSize;
+
+    @Value("${search.pq.training-iterations:20}")
+    private int trainingIterations;
+
+    @Value("${embedding.normalize:true}")
+    private boolean normalized;
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ProductQuantizer quantizer;
+    private int trainingSamples;
+    private byte[] codes = new byte[0];
+    private long[] productIds = new long[0];
+    private float[] norms = new float[0];
+    private final Map<Long, Integer> rowByProductId = new HashMap<>();
+    private int size;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long startTime = System.currentTimeMillis();
+
+        // Pass 1: reservoir sample for codebook training
+        List<float[]> sample = new ArrayList<>(trainingSampleSize);
+        Random random = new Random(42);
+        int[] seen = {0};
+        embeddingLoader.forEachEmbedding((productId, embedding) -> {
+            int index = seen[0]++;
+            if (sample.size() < trainingSampleSize) {
+                sample.add(embedding);
+            } else {
+                int slot = random.nextInt(index + 1);
+                if (slot < trainingSampleSize) {
+                    sample.set(slot, embedding);
+                }
+            }
+        });
+
+        if (sample.isEmpty()) {
+            log.warn("No embeddings found, PQ index left empty");
+            return;
+        }
+
+        ProductQuantizer trained = ProductQuantizer.train(sample, subspaces, trainingIterations, 42);
+        long trainedTime = System.currentTimeMillis();
+
+        // Pass 2: encode the catalog
+        lock.writeLock().lock();
+        try {
+            quantizer = trained;
+            trainingSamples = sample.size();
+            codes = new byte[Math.max(seen[0], 16) * subspaces];
+            productIds = new long[Math.max(seen[0], 16)];
+            norms = new float[productIds.length];
+            rowByProductId.clear();
+            size = 0;
+            embeddingLoader.forEachEmbedding(this::upsert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("PQ index built: {} vectors, {} sub-spaces x {} centroids, {} bytes/vector " +
+                        "(training {}ms on {} samples, encoding {}ms)",
+                size, subspaces, trained.getCentroids(), bytesPerVector(),
+                trainedTime - startTime, trainingSamples, System.currentTimeMillis() - trainedTime);
+    }
+
+    @Override
+    public List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds) {
+        lock.readLock().lock();
+        try {
+            if (quantizer == null || quantizer.getDimension() != queryEmbedding.length) {
+                return List.of();
+            }
+            return scan(quantizer, codes, productIds, norms, size, queryEmbedding, limit, threshold, allowedIds)
+                    .toMatches();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Long productId, float[] embedding) {
+        lock.writeLock().lock();
+        try {
+            if (quantizer != null && quantizer.getDimension() == embedding.length) {
+                upsert(productId, embedding);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String getBackendName() {
+        return "pq";
+    }
+
+    /**
+     * Measure memory and recall of the current index.
+     *
+     * Evaluation queries are the stored embeddings of randomly chosen
+     * products, read back from pgvector; each query's own product is
+     * excluded from both rankings, so self-matches do not count towards
+     * recall. Exact neighbours are computed by one streaming pass over
+     * pgvector for all queries at once.
+     *
+     * The index is copied under the read lock and evaluated without it,
+     * so writers are not blocked while pgvector is streamed.
+     *
+     * @param k Neighbours per query
+     * @param queries Number of evaluation queries
+     * @return Index statistics
+     */
+    public PqIndexStats getStats(int k, int queries) {
+        PqIndexStats stats = new PqIndexStats();
+        ProductQuantizer pq;
+        byte[] rowCodes;
+        long[] ids;
+        float[] rowNorms;
+        int rows;
+        lock.readLock().lock();
+        try {
+            if (quantizer == null) {
+                return stats;
+            }
+            pq = quantizer;
+            rows = size;
+            rowCodes = Arrays.copyOf(codes, rows * pq.getSubspaces());
+            ids = Arrays.copyOf(productIds, rows);
+            rowNorms = Arrays.copyOf(norms, rows);
+            stats.setTrainingSamples(trainingSamples);
+            stats.setBytesPerVector(bytesPerVector());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int dimension = pq.getDimension();
+        stats.setVectors(rows);
+        stats.setDimension(dimension);
+        stats.setSubspaces(pq.getSubspaces());
+        stats.setCentroidsPerSubspace(pq.getCentroids());
+        stats.setFloat32BytesPerVector(dimension * Float.BYTES);
+        stats.setCompressionRatio((double) dimension * Float.BYTES / stats.getBytesPerVector());
+        stats.setCodebookBytes((long) pq.getSubspaces() * pq.getCentroids()
+                * (dimension / pq.getSubspaces()) * Float.BYTES);
+        stats.setK(k);
+        if (rows == 0) {
+            return stats;
+        }
+
+        // Pass 1: embeddings of random products as queries
+        Random random = new Random(7);
+        Map<Long, Integer> queryByProductId = new HashMap<>();
+        while (queryByProductId.size() < Math.min(queries, rows)) {
+            queryByProductId.putIfAbsent(ids[random.nextInt(rows)], queryByProductId.size());
+        }
+        long[] queryIds = new long[queryByProductId.size()];
+        float[][] evalQueries = new float[queryIds.length][];
+        embeddingLoader.forEachEmbedding((productId, embedding) -> {
+            Integer q = queryByProductId.get(productId);
+            if (q != null && embedding.length == dimension) {
+                queryIds[q] = productId;
+                evalQueries[q] = SimilarityKernels.normalize(embedding);
+            }
+        });
+
+        // Pass 2: exact neighbours of every query, without the query's own product
+        TopKCollector[] exact = new TopKCollector[evalQueries.length];
+        for (int q = 0; q < exact.length; q++) {
+            exact[q] = new TopKCollector(k, Float.NEGATIVE_INFINITY);
+        }
+        embeddingLoader.forEachEmbedding((productId, embedding) -> {
+            for (int q = 0; q < evalQueries.length; q++) {
+                if (evalQueries[q] != null && productId != queryIds[q] && embedding.length == dimension) {
+                    exact[q].offer(productId, kernel.cosine(evalQueries[q], embedding));
+                }
+            }
+        });
+
+        long found = 0;
+        long expected = 0;
+        int evaluated = 0;
+        for (int q = 0; q < evalQueries.length; q++) {
+            if (evalQueries[q] == null) {
+                continue;
+            }
+            evaluated++;
+            Set<Long> truth = new HashSet<>();
+            for (long id : exact[q].ids()) {
+                truth.add(id);
+            }
+            // One extra result in case the query's own product is ranked
+            List<VectorMatch> approximate = scan(pq, rowCodes, ids, rowNorms, rows, evalQueries[q], k + 1,
+                    Float.NEGATIVE_INFINITY, null).toMatches();
+            int taken = 0;
+            for (VectorMatch match : approximate) {
+                if (taken == k || match.getProductId() == queryIds[q]) {
+                    continue;
+                }
+                taken++;
+                if (truth.contains(match.getProductId())) {
+                    found++;
+                }
+            }
+            expected += truth.size();
+        }
+        stats.setEvaluationQueries(evaluated);
+        stats.setRecallAtK(expected == 0 ? 0.0 : (double) found / expected);
+        return stats;
+    }
+
+    /**
+     * ADC scan over the first rows codes of the given index arrays.
+     */
+    private TopKCollector scan(ProductQuantizer pq, byte[] rowCodes, long[] ids, float[] rowNorms, int rows,
+                               float[] query, int limit, double threshold, BitSet allowedIds) {
+        float[] table = pq.innerProductTable(query);
+        float queryNorm = normalized ? 1f : kernel.norm(query);
+        int m = pq.getSubspaces();
+
+        return scanner.scan(rows, limit, threshold, (from, to, collector) -> {
+            for (int row = from; row < to; row++) {
+                if (!ProductFilterIndex.accepts(allowedIds, ids[row])) {
+                    continue;
+                }
+                float score = pq.score(table, rowCodes, row * m);
+                if (!normalized) {
+                    float denominator = queryNorm * rowNorms[row];
+                    score = denominator == 0f ? 0f : score / denominator;
+                }
+                collector.offer(ids[row], score);
+            }
+        });
+    }
+
+    /**
+     * Encode and store a product, overwriting its row if present. Caller holds the write lock.
+     */
+    private void upsert(Long productId, float[] embedding) {
+        if (embedding.length != quantizer.getDimension()) {
+            log.warn("Skipping product {}: embedding dimension {} differs from PQ index", productId, embedding.length);
+            return;
+        }
+        Integer row = rowByProductId.get(productId);
+        if (row == null) {
+            if (size == productIds.length) {
+                int capacity = size * 2;
+                productIds = Arrays.copyOf(productIds, capacity);
+                norms = Arrays.copyOf(norms, capacity);
+                codes = Arrays.copyOf(codes, capacity * quantizer.getSubspaces());
+            }
+            row = size++;
+            rowByProductId.put(productId, row);
+            productIds[row] = productId;
+        }
+        quantizer.encode(embedding, codes, row * quantizer.getSubspaces());
+        norms[row] = normalized ? 1f : kernel.norm(embedding);
+    }
+
+    private int bytesPerVector() {
+        // Codes, plus the float32 norm needed for cosine when vectors are not unit-length
+        return quantizer.getSubspaces() + (normalized ? 0 : Float.BYTES);
+    }
+}
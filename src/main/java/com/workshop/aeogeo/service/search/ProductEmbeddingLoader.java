@@ -0,0 +1,71 @@
+package com.workshop.aeogeo.service.search;
+
+import com.pgvector.PGvector;
+import com.workshop.aeogeo.repository.ProductChunkRepository;
+import com.workshop.aeogeo.repository.ProductEmbedding;
+import com.workshop.aeogeo.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.SQLException;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads product embeddings from Postgres for in-memory search backends.
+ *
+ * pgvector remains the source of truth; in-memory indexes are rebuilt
+ * from it on startup and kept current through VectorSearchBackend.index().
+ */
+@Component
+@Slf4j
+public class ProductEmbeddingLoader {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChunkRepository chunkRepository;
+
+    /**
+     * Stream every stored product embedding to the consumer.
+     *
+     * @param consumer Receives product id and embedding
+     * @return Number of embeddings read
+     */
+    @Transactional(readOnly = true)
+    public int forEachEmbedding(BiConsumer<Long, float[]> consumer) {
+        try (Stream<ProductEmbedding> rows = productRepository.streamAllEmbeddings()) {
+            return forEach(rows, consumer);
+        }
+    }
+
+    /**
+     * Stream every stored chunk embedding to the consumer, chunks of a
+     * product one after another.
+     *
+     * @param consumer Receives product id and chunk embedding
+     * @return Number of embeddings read
+     */
+    @Transactional(readOnly = true)
+    public int forEachChunkEmbedding(BiConsumer<Long, float[]> consumer) {
+        try (Stream<ProductEmbedding> rows = chunkRepository.streamAllEmbeddings()) {
+            return forEach(rows, consumer);
+        }
+    }
+
+    private int forEach(Stream<ProductEmbedding> rows, BiConsumer<Long, float[]> consumer) {
+        int count = 0;
+        for (ProductEmbedding row : (Iterable<ProductEmbedding>) rows::iterator) {
+            try {
+                consumer.accept(row.getId(), new PGvector(row.getEmbedding()).toArray());
+                count++;
+            } catch (SQLException e) {
+                log.warn("Skipping unreadable embedding for product {}: {}", row.getId(), e.getMessage());
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,255 @@
+package com.workshop.aeogeo.service.search;
+
+import com.workshop.aeogeo.dto.SearchFilter;
+import com.workshop.aeogeo.repository.CategoryLink;
+import com.workshop.aeogeo.repository.CategoryRepository;
+import com.workshop.aeogeo.repository.ProductAttributes;
+import com.workshop.aeogeo.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precomputed attribute bitmaps for filtered vector search.
+ *
+ * One BitSet per category code, per manufacturer code and for in-stock
+ * products, with bit i set for product id i; prices are kept sorted so a
+ * price band becomes a bitmap with two binary searches. resolve() turns a
+ * SearchFilter into the intersection of these bitmaps, and backends skip
+ * every product outside it before scoring.
+ *
+ * Category bitmaps include descendants: filtering on "electronics" also
+ * matches products in "cameras".
+ *
+ * The bitmaps are rebuilt lazily when the CatalogVersion moves, checked
+ * at most every search.filter.refresh-interval-ms (see CatalogSnapshot).
+ */
+@Component
+@Slf4j
+public class ProductFilterIndex {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Value("${search.filter.refresh-interval-ms:30000}")
+    private long refreshIntervalMs;
+
+    private CatalogSnapshot<Bitmaps> bitmaps;
+
+    @PostConstruct
+    public void initialize() {
+        bitmaps = new CatalogSnapshot<>("filter bitmaps", this::build, catalogVersion, refreshIntervalMs);
+    }
+
+    /**
+     * Whether a product passes a resolved filter (null = no filter).
+     */
+    public static boolean accepts(BitSet allowedIds, long productId) {
+        return allowedIds == null
+                || (productId >= 0 && productId <= Integer.MAX_VALUE && allowedIds.get((int) productId));
+    }
+
+    /**
+     * Resolve a filter to the set of matching product ids.
+     *
+     * @param filter Search filter, may be null
+     * @return Matching ids as a bitmap, or null if the filter does not constrain
+     */
+    public BitSet resolve(SearchFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return null;
+        }
+        Bitmaps current = bitmaps.get();
+
+        BitSet result = null;
+        if (filter.getCategories() != null && !filter.getCategories().isEmpty()) {
+            result = intersect(result, union(current.byCategory, filter.getCategories()));
+        }
+        if (filter.getManufacturers() != null && !filter.getManufacturers().isEmpty()) {
+            result = intersect(result, union(current.byManufacturer, filter.getManufacturers()));
+        }
+        if (filter.getInStock() != null) {
+            BitSet stock = (BitSet) current.all.clone();
+            if (filter.getInStock()) {
+                stock.and(current.inStock);
+            } else {
+                stock.andNot(current.inStock);
+            }
+            result = intersect(result, stock);
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            result = intersect(result, current.priceBand(filter.getMinPrice(), filter.getMaxPrice()));
+        }
+        return result;
+    }
+
+    /**
+     * Number of products covered by the bitmaps, for filter selectivity estimates.
+     */
+    public int catalogSize() {
+        return bitmaps.get().size;
+    }
+
+    /**
+     * Rebuild all bitmaps from the database.
+     */
+    public void rebuild() {
+        bitmaps.rebuild();
+    }
+
+    private Bitmaps build() {
+        long startTime = System.currentTimeMillis();
+
+        // Parent of each category, so products are added to every ancestor bitmap
+        Map<String, String> parents = new HashMap<>();
+        for (CategoryLink link : categoryRepository.findAllLinks()) {
+            parents.put(link.getCode(), link.getParentCode());
+        }
+
+        Map<String, BitSet> byCategory = new HashMap<>();
+        Map<String, BitSet> byManufacturer = new HashMap<>();
+        BitSet all = new BitSet();
+        BitSet inStock = new BitSet();
+        List<ProductAttributes> priced = new ArrayList<>();
+
+        for (ProductAttributes product : productRepository.findAllAttributes()) {
+            if (product.getId() > Integer.MAX_VALUE) {
+                log.warn("Product id {} exceeds bitmap range, excluded from filtered search", product.getId());
+                continue;
+            }
+            int bit = product.getId().intValue();
+            all.set(bit);
+
+            Set<String> visited = new HashSet<>();
+            for (String code = product.getCategoryCode(); code != null && visited.add(code); code = parents.get(code)) {
+                byCategory.computeIfAbsent(code, c -> new BitSet()).set(bit);
+            }
+            if (product.getManufacturerCode() != null) {
+                byManufacturer.computeIfAbsent(product.getManufacturerCode(), c -> new BitSet()).set(bit);
+            }
+            if (product.getStockLevel() != null && product.getStockLevel() > 0) {
+                inStock.set(bit);
+            }
+            if (product.getPrice() != null) {
+                priced.add(product);
+            }
+        }
+
+        priced.sort((a, b) -> a.getPrice().compareTo(b.getPrice()));
+        BigDecimal[] prices = new BigDecimal[priced.size()];
+        int[] priceIds = new int[priced.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = priced.get(i).getPrice();
+            priceIds[i] = priced.get(i).getId().intValue();
+        }
+
+        log.info("Filter bitmaps built for {} products ({} categories, {} manufacturers) in {}ms",
+                all.cardinality(), byCategory.size(), byManufacturer.size(), System.currentTimeMillis() - startTime);
+
+        return new Bitmaps(all, byCategory, byManufacturer, inStock, prices, priceIds);
+    }
+
+    private static BitSet union(Map<String, BitSet> bitmaps, List<String> codes) {
+        BitSet union = new BitSet();
+        for (String code : codes) {
+            BitSet bitmap = bitmaps.get(code);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static BitSet intersect(BitSet accumulated, BitSet next) {
+        if (accumulated == null) {
+            return next;
+        }
+        accumulated.and(next);
+        return accumulated;
+    }
+
+    /**
+     * Immutable bitmap snapshot, swapped atomically on rebuild.
+     * Bitmaps are never mutated after construction; resolve() works on copies.
+     */
+    private static final class Bitmaps {
+        private final BitSet all;
+        private final int size;
+        private final Map<String, BitSet> byCategory;
+        private final Map<String, BitSet> byManufacturer;
+        private final BitSet inStock;
+        private final BigDecimal[] prices;
+        private final int[] priceIds;
+
+        private Bitmaps(BitSet all, Map<String, BitSet> byCategory, Map<String, BitSet> byManufacturer,
+                        BitSet inStock, BigDecimal[] prices, int[] priceIds) {
+            this.all = all;
+            this.size = all.cardinality();
+            this.byCategory = byCategory;
+            this.byManufacturer = byManufacturer;
+            this.inStock = inStock;
+            this.prices = prices;
+            this.priceIds = priceIds;
+        }
+
+        /**
+         * Products priced within [min, max]; either bound may be null.
+         */
+        private BitSet priceBand(BigDecimal min, BigDecimal max) {
+            int from = min == null ? 0 : lowerBound(min);
+            int to = max == null ? prices.length : upperBound(max);
+            BitSet band = new BitSet();
+            for (int i = from; i < to; i++) {
+                band.set(priceIds[i]);
+            }
+            return band;
+        }
+
+        /** First index with price >= value. */
+        private int lowerBound(BigDecimal value) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (prices[middle].compareTo(value) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /** First index with price > value. */
+        private int upperBound(BigDecimal value) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (prices[middle].compareTo(value) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
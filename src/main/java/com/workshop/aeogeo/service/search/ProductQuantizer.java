@@ -0,0 +1,191 @@
+package com.workshop.aeogeo.service.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Product quantizer: splits a vector into m sub-vectors and replaces each
+ * with the index of its nearest centroid in a 256-entry sub-space
+ * codebook, so a vector is stored as m bytes.
+ *
+ * Search uses asymmetric distance computation (ADC): the query stays
+ * float32, its inner product with every centroid of every sub-space is
+ * precomputed into an m x 256 table, and the score of a code is the sum
+ * of m table lookups.
+ *
+ * Codebooks are trained with Lloyd's k-means on a sample of vectors.
+ */
+public class ProductQuantizer {
+
+    public static final int CENTROIDS = 256;
+
+    private final int dimension;
+    private final int subspaces;
+    private final int subDimension;
+    private final int centroids;
+
+    /** codebooks[s][c * subDimension + j] = component j of centroid c in sub-space s. */
+    private final float[][] codebooks;
+
+    private ProductQuantizer(int dimension, int subspaces, int centroids, float[][] codebooks) {
+        this.dimension = dimension;
+        this.subspaces = subspaces;
+        this.subDimension = dimension / subspaces;
+        this.centroids = centroids;
+        this.codebooks = codebooks;
+    }
+
+    /**
+     * Train sub-space codebooks.
+     *
+     * @param sample Training vectors (all of the same dimension)
+     * @param subspaces Number of sub-spaces m; must divide the dimension
+     * @param iterations k-means iterations per sub-space
+     * @param seed Random seed for centroid initialisation
+     * @return Trained quantizer
+     */
+    public static ProductQuantizer train(List<float[]> sample, int subspaces, int iterations, long seed) {
+        if (sample.isEmpty()) {
+            throw new IllegalArgumentException("Cannot train product quantizer without sample vectors");
+        }
+        int dimension = sample.get(0).length;
+        if (dimension % subspaces != 0) {
+            throw new IllegalArgumentException(
+                "Dimension " + dimension + " is not divisible by " + subspaces + " sub-spaces");
+        }
+
+        int subDimension = dimension / subspaces;
+        int centroids = Math.min(CENTROIDS, sample.size());
+        Random random = new Random(seed);
+        float[][] codebooks = new float[subspaces][];
+
+        for (int s = 0; s < subspaces; s++) {
+            codebooks[s] = kMeans(sample, s * subDimension, subDimension, centroids, iterations, random);
+        }
+        return new ProductQuantizer(dimension, subspaces, centroids, codebooks);
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int getSubspaces() {
+        return subspaces;
+    }
+
+    public int getCentroids() {
+        return centroids;
+    }
+
+    /**
+     * Encode a vector into m centroid indexes (unsigned bytes).
+     *
+     * @param vector Input vector
+     * @param codes Output array
+     * @param offset Position of the first code in the output array
+     */
+    public void encode(float[] vector, byte[] codes, int offset) {
+        for (int s = 0; s < subspaces; s++) {
+            codes[offset + s] = (byte) nearestCentroid(codebooks[s], centroids, vector, s * subDimension, subDimension);
+        }
+    }
+
+    /**
+     * Precompute the query's inner product with every centroid.
+     *
+     * @return Table indexed by s * 256 + code
+     */
+    public float[] innerProductTable(float[] query) {
+        float[] table = new float[subspaces * CENTROIDS];
+        for (int s = 0; s < subspaces; s++) {
+            float[] codebook = codebooks[s];
+            int base = s * subDimension;
+            for (int c = 0; c < centroids; c++) {
+                float dot = 0f;
+                int centroidOffset = c * subDimension;
+                for (int j = 0; j < subDimension; j++) {
+                    dot += query[base + j] * codebook[centroidOffset + j];
+                }
+                table[s * CENTROIDS + c] = dot;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Approximate inner product of the query with an encoded vector.
+     */
+    public float score(float[] table, byte[] codes, int offset) {
+        float score = 0f;
+        for (int s = 0; s < subspaces; s++) {
+            score += table[s * CENTROIDS + (codes[offset + s] & 0xFF)];
+        }
+        return score;
+    }
+
+    /**
+     * Lloyd's k-means on one sub-space of the sample.
+     *
+     * @return Flattened centroids (k x subDimension)
+     */
+    private static float[] kMeans(List<float[]> sample, int base, int subDimension, int k, int iterations,
+                                  Random random) {
+        float[] centroids = new float[k * subDimension];
+        for (int c = 0; c < k; c++) {
+            float[] seedVector = sample.get(random.nextInt(sample.size()));
+            System.arraycopy(seedVector, base, centroids, c * subDimension, subDimension);
+        }
+
+        float[] sums = new float[k * subDimension];
+        int[] counts = new int[k];
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            Arrays.fill(sums, 0f);
+            Arrays.fill(counts, 0);
+
+            for (int i = 0; i < sample.size(); i++) {
+                float[] vector = sample.get(i);
+                int nearest = nearestCentroid(centroids, k, vector, base, subDimension);
+                counts[nearest]++;
+                for (int j = 0; j < subDimension; j++) {
+                    sums[nearest * subDimension + j] += vector[base + j];
+                }
+            }
+
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // Empty cluster: reseed from a random sample vector
+                    float[] seedVector = sample.get(random.nextInt(sample.size()));
+                    System.arraycopy(seedVector, base, centroids, c * subDimension, subDimension);
+                    continue;
+                }
+                for (int j = 0; j < subDimension; j++) {
+                    centroids[c * subDimension + j] = sums[c * subDimension + j] / counts[c];
+                }
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * Index of the centroid nearest (L2) to a sub-vector.
+     */
+    private static int nearestCentroid(float[] centroids, int k, float[] vector, int base, int subDimension) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            float distance = 0f;
+            int offset = c * subDimension;
+            for (int j = 0; j < subDimension; j++) {
+                float diff = vector[base + j] - centroids[offset + j];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,70 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the keyword search columns and indexes on products.
+ *
+ * Both columns are Postgres STORED generated columns, so they are
+ * recomputed by the database on every insert/update of the product row
+ * and never drift from name/summary/description. They are not mapped on
+ * ProductModel (Hibernate's ddl-auto cannot declare generated columns).
+ *
+ * - search_vector: weighted tsvector (name A, summary B, description C)
+ *   with a GIN index, for ProductRepository.searchProductsFullText
+ * - search_text: lower-cased name, code, summary and description with a
+ *   pg_trgm GIN index, for searchProductsBySubstring (indexed
+ *   LIKE '%term%') and searchProductsBySimilarity (typo-tolerant)
+ *
+ * Disable with: search.text-index.enabled=false
+ */
+@Component
+@Slf4j
+public class ProductTextIndexManager {
+
+    static final String FULL_TEXT_INDEX = "idx_products_search_vector";
+    static final String TRIGRAM_INDEX = "idx_products_search_text_trgm";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${search.text-index.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+
+            jdbcTemplate.execute("ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                    "GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector('english', coalesce(name, '')), 'A') || " +
+                    "setweight(to_tsvector('english', coalesce(summary, '')), 'B') || " +
+                    "setweight(to_tsvector('english', coalesce(description, '')), 'C')" +
+                    ") STORED");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + FULL_TEXT_INDEX + " ON products " +
+                    "USING gin (search_vector)");
+
+            jdbcTemplate.execute("ALTER TABLE products ADD COLUMN IF NOT EXISTS search_text text " +
+                    "GENERATED ALWAYS AS (lower(" +
+                    "coalesce(name, '') || ' ' || coalesce(code, '') || ' ' || " +
+                    "coalesce(summary, '') || ' ' || coalesce(description, '')" +
+                    ")) STORED");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + TRIGRAM_INDEX + " ON products " +
+                    "USING gin (search_text gin_trgm_ops)");
+
+            log.info("Keyword search indexes ready ({}, {})", FULL_TEXT_INDEX, TRIGRAM_INDEX);
+        } catch (Exception e) {
+            log.error("Failed to create keyword search indexes on products: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.workshop.aeogeo.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Per-dimension int8 scalar quantizer.
+ *
+ * Each dimension d is mapped linearly from its observed [min_d, max_d]
+ * range onto the 256 signed byte values:
+ *   code_d = round((x_d - min_d) / scale_d) - 128,  scale_d = (max_d - min_d) / 255
+ *
+ * Scoring is asymmetric: the query stays float32 and is folded with the
+ * scales once per query, so each candidate costs one float x byte dot
+ * product and no per-candidate dequantization:
+ *   q . x ~= offset + sum_d (q_d * scale_d) * code_d
+ *   offset = sum_d q_d * (min_d + 128 * scale_d)
+ */
+public class ScalarQuantizer {
+
+    private final float[] min;
+    private final float[] scale;
+
+    private ScalarQuantizer(float[] min, float[] scale) {
+        this.min = min;
+        this.scale = scale;
+    }
+
+    /**
+     * Learns per-dimension ranges from sample vectors.
+     */
+    public static class Trainer {
+
+        private final float[] min;
+        private final float[] max;
+
+        public Trainer(int dimension) {
+            min = new float[dimension];
+            max = new float[dimension];
+            Arrays.fill(min, Float.POSITIVE_INFINITY);
+            Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        }
+
+        public void observe(float[] vector) {
+            for (int d = 0; d < vector.length; d++) {
+                min[d] = Math.min(min[d], vector[d]);
+                max[d] = Math.max(max[d], vector[d]);
+            }
+        }
+
+        public ScalarQuantizer build() {
+            float[] scale = new float[min.length];
+            float[] lower = min.clone();
+            for (int d = 0; d < min.length; d++) {
+                if (lower[d] > max[d]) {
+                    // No samples for this dimension
+                    lower[d] = 0f;
+                    scale[d] = 0f;
+                } else {
+                    scale[d] = (max[d] - lower[d]) / 255f;
+                }
+            }
+            return new ScalarQuantizer(lower, scale);
+        }
+    }
+
+    public int getDimension() {
+        return min.length;
+    }
+
+    /**
+     * Encode a vector into signed 8-bit codes (values outside the trained range are clamped).
+     */
+    public byte[] encode(float[] vector) {
+        byte[] codes = new byte[min.length];
+        for (int d = 0; d < min.length; d++) {
+            int level = scale[d] == 0f ? 0 : Math.round((vector[d] - min[d]) / scale[d]);
+            codes[d] = (byte) (Math.max(0, Math.min(255, level)) - 128);
+        }
+        return codes;
+    }
+
+    /**
+     * Fold the per-dimension scales into the query.
+     *
+     * @param query Float query vector
+     * @param scaled Output: query_d * scale_d (length = dimension)
+     * @return Constant offset to add to dot(scaled, codes)
+     */
+    public float prepareQuery(float[] query, float[] scaled) {
+        float offset = 0f;
+        for (int d = 0; d < min.length; d++) {
+            scaled[d] = query[d] * scale[d];
+            offset += query[d] * (min[d] + 128f * scale[d]);
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,98 @@
+package com.workshop.aeogeo.service.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Portable similarity kernel: one fused loop, no SIMD.
+ */
+final class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float dot = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    @Override
+    public float cosine(float[] a, float[] b) {
+        float dot = 0f;
+        float normA = 0f;
+        float normB = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float x = a[i];
+            float y = b[i];
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        if (normA == 0f || normB == 0f) {
+            return 0f;
+        }
+        return (float) (dot / Math.sqrt((double) normA * normB));
+    }
+
+    @Override
+    public float dot(float[] a, ByteBuffer b, int byteOffset) {
+        ByteBuffer le = b.order() == ByteOrder.LITTLE_ENDIAN ? b : b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        float dot = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * le.getFloat(byteOffset + i * Float.BYTES);
+        }
+        return dot;
+    }
+
+    @Override
+    public float cosine(float[] a, ByteBuffer b, int byteOffset) {
+        ByteBuffer le = b.order() == ByteOrder.LITTLE_ENDIAN ? b : b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        float dot = 0f;
+        float normA = 0f;
+        float normB = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float x = a[i];
+            float y = le.getFloat(byteOffset + i * Float.BYTES);
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        if (normA == 0f || normB == 0f) {
+            return 0f;
+        }
+        return (float) (dot / Math.sqrt((double) normA * normB));
+    }
+
+    @Override
+    public float dot(float[] a, byte[] b) {
+        float dot = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, short[] b, int offset) {
+        float dot = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * Float16.toFloat(b[offset + i]);
+        }
+        return dot;
+    }
+
+    @Override
+    public float norm(float[] a) {
+        float sum = 0f;
+        for (float v : a) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,224 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.Value;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Small approximate nearest-neighbour index for cosine similarity, based
+ * on random-hyperplane locality-sensitive hashing (SimHash).
+ *
+ * Each of the hash tables signs the vector against its own set of random
+ * hyperplanes; vectors at a small angle share most signature bits. A
+ * lookup probes the query's bucket and every bucket one bit away in each
+ * table, then verifies candidates with the exact cosine. With the default
+ * 4 tables x 8 bits, neighbours at cosine 0.95 are found with probability
+ * above 0.99.
+ *
+ * Intended for a few thousand entries (e.g. recent query vectors): the
+ * oldest entry is evicted once the capacity is reached.
+ *
+ * Thread-safety: lookups share a read lock, inserts take the write lock.
+ *
+ * @param <T> Value stored with each vector
+ */
+public class SimHashIndex<T> {
+
+    private final int tables;
+    private final int bits;
+    private final int capacity;
+    private final long seed;
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** planes[t * bits + b] = hyperplane normal for bit b of table t. */
+    private float[][] planes;
+    private final List<Map<Integer, List<Entry<T>>>> buckets = new ArrayList<>();
+    private final ArrayDeque<Entry<T>> insertionOrder = new ArrayDeque<>();
+
+    /**
+     * @param tables Number of hash tables (recall)
+     * @param bits Signature bits per table (bucket selectivity), at most 30
+     * @param capacity Maximum number of entries
+     * @param seed Random seed for the hyperplanes
+     */
+    public SimHashIndex(int tables, int bits, int capacity, long seed) {
+        if (bits < 1 || bits > 30) {
+            throw new IllegalArgumentException("Signature bits must be between 1 and 30, got " + bits);
+        }
+        this.tables = tables;
+        this.bits = bits;
+        this.capacity = capacity;
+        this.seed = seed;
+        for (int t = 0; t < tables; t++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Insert a vector, evicting the oldest entry if the index is full.
+     * A vector of a different dimension than the current entries clears
+     * the index first.
+     */
+    public void add(float[] vector, T value) {
+        lock.writeLock().lock();
+        try {
+            if (planes == null || planes[0].length != vector.length) {
+                clearLocked();
+                planes = randomPlanes(vector.length);
+            }
+            while (insertionOrder.size() >= capacity && !insertionOrder.isEmpty()) {
+                remove(insertionOrder.pollFirst());
+            }
+
+            Entry<T> entry = new Entry<>(vector, value, signatures(vector));
+            for (int t = 0; t < tables; t++) {
+                buckets.get(t).computeIfAbsent(entry.signatures[t], s -> new ArrayList<>()).add(entry);
+            }
+            insertionOrder.addLast(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Most similar stored vector within the radius.
+     *
+     * @param query Query vector
+     * @param minSimilarity Minimum cosine similarity
+     * @param accept Only entries whose value passes this test are considered
+     * @return Best match, or null if no accepted entry is within the radius
+     */
+    public Match<T> findNearest(float[] query, double minSimilarity, Predicate<T> accept) {
+        lock.readLock().lock();
+        try {
+            if (planes == null || planes[0].length != query.length) {
+                return null;
+            }
+            int[] signatures = signatures(query);
+            Set<Entry<T>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            Entry<T> best = null;
+            double bestSimilarity = minSimilarity;
+
+            for (int t = 0; t < tables; t++) {
+                Map<Integer, List<Entry<T>>> table = buckets.get(t);
+                // Multi-probe: own bucket plus all buckets at Hamming distance 1
+                for (int flip = -1; flip < bits; flip++) {
+                    int signature = flip < 0 ? signatures[t] : signatures[t] ^ (1 << flip);
+                    List<Entry<T>> bucket = table.get(signature);
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (Entry<T> entry : bucket) {
+                        if (!visited.add(entry) || !accept.test(entry.value)) {
+                            continue;
+                        }
+                        double similarity = kernel.cosine(query, entry.vector);
+                        if (similarity >= bestSimilarity) {
+                            best = entry;
+                            bestSimilarity = similarity;
+                        }
+                    }
+                }
+            }
+            return best == null ? null : new Match<>(best.value, bestSimilarity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return insertionOrder.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void clearLocked() {
+        for (Map<Integer, List<Entry<T>>> table : buckets) {
+            table.clear();
+        }
+        insertionOrder.clear();
+    }
+
+    private void remove(Entry<T> entry) {
+        for (int t = 0; t < tables; t++) {
+            Map<Integer, List<Entry<T>>> table = buckets.get(t);
+            List<Entry<T>> bucket = table.get(entry.signatures[t]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    table.remove(entry.signatures[t]);
+                }
+            }
+        }
+    }
+
+    private int[] signatures(float[] vector) {
+        int[] signatures = new int[tables];
+        for (int t = 0; t < tables; t++) {
+            int signature = 0;
+            for (int b = 0; b < bits; b++) {
+                if (kernel.dot(planes[t * bits + b], vector) >= 0f) {
+                    signature |= 1 << b;
+                }
+            }
+            signatures[t] = signature;
+        }
+        return signatures;
+    }
+
+    private float[][] randomPlanes(int dimension) {
+        Random random = new Random(seed);
+        float[][] normals = new float[tables * bits][dimension];
+        for (float[] normal : normals) {
+            for (int i = 0; i < dimension; i++) {
+                normal[i] = (float) random.nextGaussian();
+            }
+        }
+        return normals;
+    }
+
+    /**
+     * A stored value and its cosine similarity to the query.
+     */
+    @Value
+    public static class Match<T> {
+        T value;
+        double similarity;
+    }
+
+    private static final class Entry<T> {
+        private final float[] vector;
+        private final T value;
+        private final int[] signatures;
+
+        private Entry(float[] vector, T value, int[] signatures) {
+            this.vector = vector;
+            this.value = value;
+            this.signatures = signatures;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.workshop.aeogeo.service.search;
+
+import com.pgvector.PGvector;
+import com.workshop.aeogeo.model.ProductModel;
+import com.workshop.aeogeo.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Precomputed "similar products" k-NN graph.
+ *
+ * A background job asks the active VectorSearchBackend for the top-N
+ * neighbours of every product embedding (in batches, via
+ * findNearestBatch) and keeps them as an adjacency table: per product a
+ * pair of primitive arrays (neighbour ids, similarities), best first.
+ * Lookups are a single hash probe.
+ *
+ * A re-embedded product only refreshes its own neighbourhood:
+ * - its own list is queried again, with refresh-candidates results;
+ * - each candidate whose list it now enters gets it inserted at its new
+ *   similarity (cosine is symmetric, so no query is needed);
+ * - products that listed it and where it may have dropped out of the
+ *   top-N are queried again; they are found through a reverse adjacency
+ *   map (product -> products listing it), so a refresh never walks the
+ *   whole graph.
+ *
+ * The whole graph is rebuilt periodically, which also drops deleted
+ * products. All work runs on one background thread, so refreshes and
+ * rebuilds never interleave.
+ *
+ * A build runs one k-NN query per product: cheap on the ANN backends
+ * (pgvector index, hnsw, ivf), but O(N^2) similarity computations on the
+ * brute-force backends (mmap, int8, pq, binary, float16, matryoshka).
+ * The graph is therefore off by default.
+ *
+ * Configuration (search.similar.*):
+ * - enabled: build the graph (default false)
+ * - neighbours: neighbours kept per product (default 10)
+ * - threshold: minimum similarity of a neighbour (default 0.0)
+ * - refresh-candidates: nearest products checked when one is re-embedded (default 50)
+ * - batch-size: products queried per backend batch (default 256)
+ * - rebuild-interval-ms: full rebuild period, 0 = startup only (default 86400000)
+ */
+@Component
+@Slf4j
+public class SimilarProductGraph {
+
+    @Autowired
+    private VectorSearchBackend searchBackend;
+
+    @Autowired
+    private ProductEmbeddingLoader embeddingLoader;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${search.similar.enabled:false}")
+    private boolean enabled;
+
+    @Value("${search.similar.neighbours:10}")
+    private int neighbours;
+
+    @Value("${search.similar.threshold:0.0}")
+    private double threshold;
+
+    @Value("${search.similar.refresh-candidates:50}")
+    private int refreshCandidates;
+
+    @Value("${search.similar.batch-size:256}")
+    private int batchSize;
+
+    @Value("${search.similar.rebuild-interval-ms:86400000}")
+    private long rebuildIntervalMs;
+
+    private ScheduledExecutorService worker;
+
+    /** Backends answering k-NN queries without scanning every product. */
+    private static final Set<String> ANN_BACKENDS = Set.of("pgvector", "hnsw", "ivf");
+
+    /** Product id -> neighbours; null until the first build completes. Only written by the worker. */
+    private volatile Map<Long, Neighbours> graph;
+
+    /** Product id -> products whose neighbour list contains it. Only used by the worker. */
+    private Map<Long, Set<Long>> listedBy = new HashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "similar-products");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Start building once the application accepts traffic. Readiness is
+     * published after every ApplicationReadyEvent listener has run, so
+     * in-memory backends have finished loading by then.
+     */
+    @EventListener
+    public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+        if (!enabled || event.getState() != ReadinessState.ACCEPTING_TRAFFIC || graph != null) {
+            return;
+        }
+        if (!ANN_BACKENDS.contains(searchBackend.getBackendName())) {
+            log.warn("Similar-product graph enabled on the brute-force {} backend: every build scores all "
+                    + "product pairs", searchBackend.getBackendName());
+        }
+        if (rebuildIntervalMs > 0) {
+            worker.scheduleWithFixedDelay(this::rebuild, 0, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            worker.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Precomputed neighbours of a product, best first.
+     *
+     * @param productId Product id
+     * @param limit Maximum number of neighbours
+     * @return Neighbours, or empty if the product is not in the graph (yet)
+     */
+    public Optional<List<VectorMatch>> getNeighbours(Long productId, int limit) {
+        Map<Long, Neighbours> current = graph;
+        Neighbours entry = current == null ? null : current.get(productId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        int count = Math.min(limit, entry.ids.length);
+        List<VectorMatch> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            matches.add(new VectorMatch(entry.ids[i], entry.scores[i]));
+        }
+        return Optional.of(matches);
+    }
+
+    /**
+     * Refresh the neighbourhood of a re-embedded product in the background.
+     * Must be called after the embedding has been handed to the backend.
+     *
+     * @param productId Product id
+     * @param embedding Its new (stored) embedding
+     */
+    public void refresh(Long productId, float[] embedding) {
+        if (!enabled || graph == null) {
+            // Not built yet: the pending build picks the embedding up
+            return;
+        }
+        worker.execute(() -> {
+            try {
+                refreshNeighbourhood(productId, embedding);
+            } catch (RuntimeException e) {
+                log.error("Failed to refresh similar products of product {}", productId, e);
+            }
+        });
+    }
+
+    private void rebuild() {
+        long startTime = System.currentTimeMillis();
+        try {
+            Map<Long, Neighbours> built = new ConcurrentHashMap<>();
+            Map<Long, Set<Long>> builtListedBy = new HashMap<>();
+            List<Long> ids = new ArrayList<>(batchSize);
+            List<float[]> vectors = new ArrayList<>(batchSize);
+            embeddingLoader.forEachEmbedding((productId, embedding) -> {
+                ids.add(productId);
+                vectors.add(embedding);
+                if (ids.size() == batchSize) {
+                    addBatch(built, builtListedBy, ids, vectors);
+                }
+            });
+            addBatch(built, builtListedBy, ids, vectors);
+            listedBy = builtListedBy;
+            graph = built;
+
+            log.info("Similar-product graph built for {} products ({} neighbours each) in {}ms",
+                    built.size(), neighbours, System.currentTimeMillis() - startTime);
+        } catch (RuntimeException e) {
+            log.error("Similar-product graph build failed, keeping the current graph", e);
+        }
+    }
+
+    private void addBatch(Map<Long, Neighbours> built, Map<Long, Set<Long>> builtListedBy, List<Long> ids,
+                          List<float[]> vectors) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<List<VectorMatch>> results = searchBackend.findNearestBatch(
+                vectors.toArray(new float[0][]), neighbours + 1, threshold, null);
+        for (int i = 0; i < ids.size(); i++) {
+            put(built, builtListedBy, ids.get(i), Neighbours.of(ids.get(i), results.get(i), neighbours));
+        }
+        ids.clear();
+        vectors.clear();
+    }
+
+    private void refreshNeighbourhood(Long productId, float[] embedding) {
+        Map<Long, Neighbours> current = graph;
+        List<VectorMatch> candidates = searchBackend.findNearest(
+                embedding, Math.max(refreshCandidates, neighbours) + 1, threshold, null);
+        put(current, listedBy, productId, Neighbours.of(productId, candidates, neighbours));
+
+        // k-NN is not symmetric: look beyond its own top-N for lists it now enters
+        Set<Long> visited = new HashSet<>();
+        List<Long> stale = new ArrayList<>();
+        int inserted = 0;
+        for (VectorMatch candidate : candidates) {
+            Long otherId = candidate.getProductId();
+            Neighbours other = current.get(otherId);
+            if (otherId.equals(productId) || other == null) {
+                continue;
+            }
+            visited.add(otherId);
+            float score = (float) candidate.getSimilarity();
+            if (other.contains(productId) && other.isFull(neighbours) && score < other.worstScore()) {
+                // Dropped below the last kept neighbour: an unlisted product may now beat it
+                stale.add(otherId);
+            } else if (other.contains(productId) || !other.isFull(neighbours) || score > other.worstScore()) {
+                put(current, listedBy, otherId, other.with(productId, score, neighbours));
+                inserted++;
+            }
+        }
+
+        // Products that listed it but are not among the candidates: its rank there is unknown
+        for (Long otherId : listedBy.getOrDefault(productId, Set.of())) {
+            if (!otherId.equals(productId) && !visited.contains(otherId)) {
+                stale.add(otherId);
+            }
+        }
+        for (Long otherId : stale) {
+            Optional<float[]> otherEmbedding = productRepository.findById(otherId)
+                    .map(ProductModel::getEmbedding)
+                    .map(PGvector::toArray);
+            if (otherEmbedding.isPresent()) {
+                put(current, listedBy, otherId, Neighbours.of(otherId, searchBackend.findNearest(
+                        otherEmbedding.get(), neighbours + 1, threshold, null), neighbours));
+            } else {
+                put(current, listedBy, otherId, null);
+            }
+        }
+
+        log.debug("Refreshed similar products of product {} ({} lists updated, {} re-queried)",
+                productId, inserted, stale.size());
+    }
+
+    /**
+     * Replace (or, with null, remove) a product's list and keep the reverse adjacency in step.
+     */
+    private static void put(Map<Long, Neighbours> graph, Map<Long, Set<Long>> listedBy, Long productId,
+                            Neighbours entry) {
+        Neighbours previous = entry == null ? graph.remove(productId) : graph.put(productId, entry);
+        if (previous != null) {
+            for (long id : previous.ids) {
+                Set<Long> listing = listedBy.get(id);
+                if (listing != null) {
+                    listing.remove(productId);
+                    if (listing.isEmpty()) {
+                        listedBy.remove(id);
+                    }
+                }
+            }
+        }
+        if (entry != null) {
+            for (long id : entry.ids) {
+                listedBy.computeIfAbsent(id, key -> new HashSet<>()).add(productId);
+            }
+        }
+    }
+
+    /**
+     * Neighbour ids and similarities of one product, best first. Immutable.
+     */
+    private static final class Neighbours {
+        private final long[] ids;
+        private final float[] scores;
+
+        private Neighbours(long[] ids, float[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        /**
+         * Backend matches without the product itself, at most max entries.
+         */
+        private static Neighbours of(long productId, List<VectorMatch> matches, int max) {
+            long[] ids = new long[Math.min(max, matches.size())];
+            float[] scores = new float[ids.length];
+            int size = 0;
+            for (VectorMatch match : matches) {
+                if (match.getProductId() != productId && size < ids.length) {
+                    ids[size] = match.getProductId();
+                    scores[size++] = (float) match.getSimilarity();
+                }
+            }
+            return new Neighbours(Arrays.copyOf(ids, size), Arrays.copyOf(scores, size));
+        }
+
+        private boolean isFull(int max) {
+            return ids.length >= max;
+        }
+
+        private float worstScore() {
+            return scores.length == 0 ? Float.NEGATIVE_INFINITY : scores[scores.length - 1];
+        }
+
+        private boolean contains(long productId) {
+            for (long id : ids) {
+                if (id == productId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Copy with the product (re)inserted at its new score, keeping at most max entries.
+         */
+        private Neighbours with(long productId, float score, int max) {
+            long[] newIds = new long[Math.min(max, ids.length + 1)];
+            float[] newScores = new float[newIds.length];
+            int size = 0;
+            boolean inserted = false;
+            for (int i = 0; i < ids.length && size < newIds.length; i++) {
+                if (ids[i] == productId) {
+                    continue;
+                }
+                if (!inserted && score > scores[i]) {
+                    newIds[size] = productId;
+                    newScores[size++] = score;
+                    inserted = true;
+                    if (size == newIds.length) {
+                        break;
+                    }
+                }
+                newIds[size] = ids[i];
+                newScores[size++] = scores[i];
+            }
+            if (!inserted && size < newIds.length) {
+                newIds[size] = productId;
+                newScores[size++] = score;
+            }
+            return new Neighbours(Arrays.copyOf(newIds, size), Arrays.copyOf(newScores, size));
+        }
+    }
+}
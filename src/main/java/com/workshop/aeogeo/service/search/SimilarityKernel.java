@@ -0,0 +1,72 @@
+package com.workshop.aeogeo.service.search;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Vector similarity primitives used by the in-memory search paths.
+ *
+ * Implementations:
+ * - VectorApiSimilarityKernel: SIMD via jdk.incubator.vector
+ * - ScalarSimilarityKernel: plain loops, used when the module is absent
+ *
+ * Obtain the active kernel through SimilarityKernels.get().
+ */
+public interface SimilarityKernel {
+
+    /**
+     * Dot product of two vectors of equal length.
+     */
+    float dot(float[] a, float[] b);
+
+    /**
+     * Cosine similarity, computing the dot product and both norms in a
+     * single pass over the arrays.
+     *
+     * @return Similarity in [-1, 1], or 0 if either vector is all zeros
+     */
+    float cosine(float[] a, float[] b);
+
+    /**
+     * Dot product of a vector with one stored off-heap, e.g. a row of a
+     * memory-mapped embedding matrix.
+     *
+     * @param a Query vector
+     * @param b Buffer holding little-endian float32 values
+     * @param byteOffset Offset of the first element of b's vector
+     */
+    float dot(float[] a, ByteBuffer b, int byteOffset);
+
+    /**
+     * Cosine similarity with an off-heap vector, single pass.
+     *
+     * @see #dot(float[], ByteBuffer, int)
+     */
+    float cosine(float[] a, ByteBuffer b, int byteOffset);
+
+    /**
+     * Dot product of a float vector with a vector of signed 8-bit codes,
+     * e.g. a scalar-quantized embedding row.
+     */
+    float dot(float[] a, byte[] b);
+
+    /**
+     * Dot product of a float vector with a half-precision vector, e.g. a
+     * row of a float16 embedding matrix (see Float16). Only finite values
+     * are supported.
+     *
+     * @param a Query vector
+     * @param b binary16 bit patterns
+     * @param offset Index of the first element of b's vector
+     */
+    float dot(float[] a, short[] b, int offset);
+
+    /**
+     * Euclidean (L2) norm of a vector.
+     */
+    float norm(float[] a);
+
+    /**
+     * Get the name of this kernel for logging.
+     */
+    String getName();
+}
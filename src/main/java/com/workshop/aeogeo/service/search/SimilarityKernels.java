@@ -0,0 +1,66 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Selects the fastest available SimilarityKernel once per JVM.
+ *
+ * The SIMD kernel needs the incubator module at runtime:
+ *   java --add-modules jdk.incubator.vector -jar ...
+ * (spring-boot:run passes it via the pom). Without it, or if loading the
+ * kernel fails for any reason, the scalar kernel is used.
+ */
+@Slf4j
+public final class SimilarityKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final SimilarityKernel KERNEL = load();
+
+    private SimilarityKernels() {
+    }
+
+    /**
+     * Get the active kernel.
+     */
+    public static SimilarityKernel get() {
+        return KERNEL;
+    }
+
+    /**
+     * Scale a vector to unit length so cosine similarity becomes a dot product.
+     *
+     * @param vector Input vector (not modified)
+     * @return Unit-length copy, or an unchanged copy if the vector is all zeros
+     */
+    public static float[] normalize(float[] vector) {
+        float[] normalized = vector.clone();
+        float norm = KERNEL.norm(vector);
+        if (norm > 0f) {
+            float scale = 1f / norm;
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    private static SimilarityKernel load() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                // Loaded by name so this class never links against the incubator API
+                SimilarityKernel kernel = (SimilarityKernel) Class
+                        .forName("com.workshop.aeogeo.service.search.VectorApiSimilarityKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+                log.info("Using SIMD similarity kernel: {}", kernel.getName());
+                return kernel;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API kernel unavailable ({}), falling back to scalar", e.toString());
+            }
+        } else {
+            log.info("Module {} not present, using scalar similarity kernel", VECTOR_MODULE);
+        }
+        return new ScalarSimilarityKernel();
+    }
+}
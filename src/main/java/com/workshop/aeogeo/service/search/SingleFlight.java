@@ -0,0 +1,83 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.Value;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key into one computation.
+ *
+ * The first caller for a key runs the computation on its own thread;
+ * callers arriving while it is in flight wait for and share its result
+ * (or its exception). The key is released as soon as the computation
+ * finishes, so nothing is cached here: later calls compute again (or hit
+ * whatever cache the computation fills before returning).
+ *
+ * @param <K> Key identifying identical calls
+ * @param <V> Result type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Result of the in-flight call for key, or of a new call to computation.
+     *
+     * @param key Call key
+     * @param computation Runs on the calling thread if no call for key is in flight
+     * @return Computed or shared result
+     */
+    public Result<V> execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            return new Result<>(join(existing), true);
+        }
+
+        try {
+            V value = computation.get();
+            call.complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Number of keys currently being computed.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            // Rethrow the leader's exception unwrapped, as if the computation had run here
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Value of a call and whether it was shared with an earlier caller.
+     */
+    @Value
+    public static class Result<V> {
+        V value;
+        boolean shared;
+    }
+}
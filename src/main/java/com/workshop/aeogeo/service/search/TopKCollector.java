@@ -0,0 +1,156 @@
+package com.workshop.aeogeo.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded min-heap of the k best (product id, score) pairs.
+ *
+ * Brute-force scans push every candidate through offer(); the weakest
+ * kept score sits at the root, so most candidates are rejected with a
+ * single comparison and memory stays O(k) regardless of catalog size.
+ * Backed by primitive arrays to avoid boxing in the scan loop; they grow
+ * with the entries kept, so a large k costs nothing on shards that only
+ * see a few candidates.
+ *
+ * Not thread-safe: use one collector per scanning thread and merge.
+ */
+public class TopKCollector {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private final float threshold;
+    private long[] ids;
+    private float[] scores;
+    private int size;
+
+    /**
+     * @param k Maximum number of entries kept
+     * @param threshold Minimum score accepted
+     */
+    public TopKCollector(int k, double threshold) {
+        this.k = k;
+        this.threshold = (float) threshold;
+        this.ids = new long[Math.min(k, INITIAL_CAPACITY)];
+        this.scores = new float[ids.length];
+    }
+
+    /**
+     * Offer a candidate; kept if it beats the threshold and the current k-th best.
+     */
+    public void offer(long id, float score) {
+        if (score < threshold || k == 0) {
+            return;
+        }
+        if (size < k) {
+            if (size == ids.length) {
+                int capacity = (int) Math.min(k, (long) size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Lowest score currently kept, or the threshold while the heap is not full.
+     * Scans can use this to skip candidates that cannot make the cut.
+     */
+    public float minScore() {
+        return size < k ? threshold : scores[0];
+    }
+
+    /**
+     * Add every entry of another collector (e.g. from another shard).
+     */
+    public void merge(TopKCollector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Kept ids in heap (unspecified) order, e.g. candidate rows to re-rank.
+     */
+    public long[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Kept entries ordered by descending score.
+     */
+    public List<VectorMatch> toMatches() {
+        long[] sortedIds = new long[size];
+        float[] sortedScores = new float[size];
+        TopKCollector copy = new TopKCollector(k, threshold);
+        copy.merge(this);
+        for (int i = size - 1; i >= 0; i--) {
+            sortedIds[i] = copy.ids[0];
+            sortedScores[i] = copy.scores[0];
+            copy.removeMin();
+        }
+        List<VectorMatch> matches = new ArrayList<>(size);
+        for (int i = 0; i < sortedIds.length; i++) {
+            matches.add(new VectorMatch(sortedIds[i], sortedScores[i]));
+        }
+        return matches;
+    }
+
+    private void removeMin() {
+        size--;
+        ids[0] = ids[size];
+        scores[0] = scores[size];
+        siftDown(0);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,233 @@
+package com.workshop.aeogeo.service.search;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SIMD similarity kernel on the Java Vector API.
+ *
+ * Processes SPECIES_PREFERRED lanes per step (8 floats on AVX2, 16 on
+ * AVX-512) with fused multiply-add, then finishes the tail with scalar
+ * code. Only loaded reflectively by SimilarityKernels when the
+ * jdk.incubator.vector module is present.
+ */
+final class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Byte species with the same lane count as SPECIES, for widening int8
+     * codes. Null when no vector shape is that small (4 float lanes need
+     * a 32-bit shape, e.g. on NEON or SSE); int8 dot products are scalar then.
+     */
+    private static final VectorSpecies<Byte> BYTE_SPECIES = species(byte.class, SPECIES.length() * Byte.SIZE);
+
+    /**
+     * Short and int species with the same lane count as SPECIES, for
+     * widening float16 values. SHORT_SPECIES is null when no vector shape
+     * is that small; float16 dot products are scalar then.
+     */
+    private static final VectorSpecies<Short> SHORT_SPECIES = species(short.class, SPECIES.length() * Short.SIZE);
+    private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(int.class, SPECIES.vectorShape());
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            acc = va.fma(vb, acc);
+        }
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    @Override
+    public float cosine(float[] a, float[] b) {
+        FloatVector dotAcc = FloatVector.zero(SPECIES);
+        FloatVector normAAcc = FloatVector.zero(SPECIES);
+        FloatVector normBAcc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            dotAcc = va.fma(vb, dotAcc);
+            normAAcc = va.fma(va, normAAcc);
+            normBAcc = vb.fma(vb, normBAcc);
+        }
+        float dot = dotAcc.reduceLanes(VectorOperators.ADD);
+        float normA = normAAcc.reduceLanes(VectorOperators.ADD);
+        float normB = normBAcc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            float x = a[i];
+            float y = b[i];
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        if (normA == 0f || normB == 0f) {
+            return 0f;
+        }
+        return (float) (dot / Math.sqrt((double) normA * normB));
+    }
+
+    @Override
+    public float dot(float[] a, ByteBuffer b, int byteOffset) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromByteBuffer(SPECIES, b, byteOffset + i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            acc = va.fma(vb, acc);
+        }
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        ByteBuffer le = b.order() == ByteOrder.LITTLE_ENDIAN ? b : b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (; i < a.length; i++) {
+            dot += a[i] * le.getFloat(byteOffset + i * Float.BYTES);
+        }
+        return dot;
+    }
+
+    @Override
+    public float cosine(float[] a, ByteBuffer b, int byteOffset) {
+        FloatVector dotAcc = FloatVector.zero(SPECIES);
+        FloatVector normAAcc = FloatVector.zero(SPECIES);
+        FloatVector normBAcc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromByteBuffer(SPECIES, b, byteOffset + i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            dotAcc = va.fma(vb, dotAcc);
+            normAAcc = va.fma(va, normAAcc);
+            normBAcc = vb.fma(vb, normBAcc);
+        }
+        float dot = dotAcc.reduceLanes(VectorOperators.ADD);
+        float normA = normAAcc.reduceLanes(VectorOperators.ADD);
+        float normB = normBAcc.reduceLanes(VectorOperators.ADD);
+        ByteBuffer le = b.order() == ByteOrder.LITTLE_ENDIAN ? b : b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (; i < a.length; i++) {
+            float x = a[i];
+            float y = le.getFloat(byteOffset + i * Float.BYTES);
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        if (normA == 0f || normB == 0f) {
+            return 0f;
+        }
+        return (float) (dot / Math.sqrt((double) normA * normB));
+    }
+
+    @Override
+    public float dot(float[] a, byte[] b) {
+        if (BYTE_SPECIES == null) {
+            float dot = 0f;
+            for (int i = 0; i < a.length; i++) {
+                dot += a[i] * b[i];
+            }
+            return dot;
+        }
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = (FloatVector) ByteVector.fromArray(BYTE_SPECIES, b, i).castShape(SPECIES, 0);
+            acc = va.fma(vb, acc);
+        }
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, short[] b, int offset) {
+        if (SHORT_SPECIES == null) {
+            float dot = 0f;
+            for (int i = 0; i < a.length; i++) {
+                dot += a[i] * Float16.toFloat(b[offset + i]);
+            }
+            return dot;
+        }
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            IntVector halves = (IntVector) ShortVector.fromArray(SHORT_SPECIES, b, offset + i)
+                    .castShape(INT_SPECIES, 0);
+            acc = va.fma(halfToFloat(halves), acc);
+        }
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            dot += a[i] * Float16.toFloat(b[offset + i]);
+        }
+        return dot;
+    }
+
+    /**
+     * Widen binary16 bit patterns (sign-extended to int lanes) to float32.
+     * Finite values only: infinities and NaNs are not special-cased.
+     */
+    private static FloatVector halfToFloat(IntVector halves) {
+        IntVector sign = halves.and(0x8000).lanewise(VectorOperators.LSHL, 16);
+        IntVector magnitude = halves.and(0x7fff);
+        // Normal: rebias the exponent from 15 to 127, then shift exponent and mantissa into place
+        FloatVector normal = magnitude.add(112 << 10).lanewise(VectorOperators.LSHL, 13).or(sign)
+                .reinterpretAsFloats();
+        // Subnormal (and zero): mantissa x 2^-24
+        FloatVector subnormal = ((FloatVector) magnitude.castShape(SPECIES, 0)).mul(0x1.0p-24f)
+                .reinterpretAsInts().or(sign).reinterpretAsFloats();
+        return normal.blend(subnormal, magnitude.compare(VectorOperators.LT, 0x400).cast(SPECIES));
+    }
+
+    /**
+     * Species of the given element type and vector size, or null if the platform has no such shape.
+     */
+    private static <E> VectorSpecies<E> species(Class<E> elementType, int bits) {
+        try {
+            return VectorSpecies.of(elementType, VectorShape.forBitSize(bits));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public float norm(float[] a) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            acc = va.fma(va, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * a[i];
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    @Override
+    public String getName() {
+        return "vector-api (" + SPECIES.length() + " lanes)";
+    }
+}
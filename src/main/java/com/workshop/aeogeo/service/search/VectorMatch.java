@@ -0,0 +1,14 @@
+package com.workshop.aeogeo.service.search;
+
+import lombok.Value;
+
+/**
+ * A product id with its cosine similarity to the query.
+ */
+@Value
+public class VectorMatch {
+
+    Long productId;
+
+    double similarity;
+}
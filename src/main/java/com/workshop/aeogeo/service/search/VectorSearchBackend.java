@@ -0,0 +1,94 @@
+package com.workshop.aeogeo.service.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Strategy interface for nearest-neighbour search over product embeddings.
+ *
+ * Implementations:
+ * - PgVectorSearchBackend: k-NN query executed by Postgres (default)
+ * - HnswSearchBackend: in-process HNSW graph, no database round-trip
+ * - MappedMatrixSearchBackend: brute-force scan of a memory-mapped matrix
+ * - Int8QuantizedSearchBackend: int8 scan with exact re-ranking
+ * - PqSearchBackend: product-quantized codes with ADC scoring
+ * - BinaryPrefilterSearchBackend: Hamming prefilter with exact re-ranking
+ * - MatryoshkaSearchBackend: truncated-dimension prefilter with full-dimension re-ranking
+ * - IvfSearchBackend: k-means inverted lists, scans the nprobe closest clusters
+ * - Float16SearchBackend: brute-force scan of half-precision vectors on the heap
+ *
+ * The backend only ranks product ids; SemanticSearchService loads the
+ * matching products and builds the response.
+ *
+ * Selected with the search.backend property, the same way
+ * embedding.provider selects an EmbeddingProvider.
+ */
+public interface VectorSearchBackend {
+
+    /**
+     * Find the products nearest to a query embedding.
+     *
+     * @param queryEmbedding Query vector
+     * @param limit Maximum number of matches
+     * @param threshold Minimum cosine similarity
+     * @return Matches ordered by descending similarity
+     */
+    default List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold) {
+        return findNearest(queryEmbedding, limit, threshold, null);
+    }
+
+    /**
+     * Find the nearest products among a pre-filtered set.
+     *
+     * Products outside allowedIds must be skipped before they are scored
+     * (see ProductFilterIndex.accepts).
+     *
+     * @param queryEmbedding Query vector
+     * @param limit Maximum number of matches
+     * @param threshold Minimum cosine similarity
+     * @param allowedIds Product ids resolved by ProductFilterIndex, or null for no filter
+     * @return Matches ordered by descending similarity
+     */
+    List<VectorMatch> findNearest(float[] queryEmbedding, int limit, double threshold, BitSet allowedIds);
+
+    /**
+     * Find the nearest products for many query embeddings at once.
+     *
+     * The default runs findNearest once per query; backends that scan a
+     * matrix override it to score every query in a single pass.
+     *
+     * @param queryEmbeddings Query vectors
+     * @param limit Maximum number of matches per query
+     * @param threshold Minimum cosine similarity
+     * @param allowedIds Product ids resolved by ProductFilterIndex, or null for no filter
+     * @return Matches per query, in query order
+     */
+    default List<List<VectorMatch>> findNearestBatch(float[][] queryEmbeddings, int limit, double threshold,
+                                                     BitSet allowedIds) {
+        List<List<VectorMatch>> results = new ArrayList<>(queryEmbeddings.length);
+        for (float[] queryEmbedding : queryEmbeddings) {
+            results.add(findNearest(queryEmbedding, limit, threshold, allowedIds));
+        }
+        return results;
+    }
+
+    /**
+     * Notify the backend that a product embedding was written.
+     *
+     * Backends that query Postgres directly have nothing to update;
+     * in-memory backends add or replace the product's vector.
+     *
+     * @param productId Product id
+     * @param embedding New product embedding
+     */
+    default void index(Long productId, float[] embedding) {
+    }
+
+    /**
+     * Get the name/identifier of this backend.
+     *
+     * @return Backend name (e.g., "pgvector")
+     */
+    String getBackendName();
+}